@@ -0,0 +1,39 @@
+package com.example.shop.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_PAGES = "productPages";
+
+    // Caches are registered up front so the actuator cache metrics binder picks them up at startup
+    @Bean
+    public CacheManager cacheManager(@Value("${shop.cache.products.max-size:10000}") long productsMaxSize,
+                                     @Value("${shop.cache.products.ttl-seconds:300}") long productsTtlSeconds,
+                                     @Value("${shop.cache.product-pages.max-size:500}") long pagesMaxSize,
+                                     @Value("${shop.cache.product-pages.ttl-seconds:60}") long pagesTtlSeconds) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCTS, Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(productsTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(PRODUCT_PAGES, Caffeine.newBuilder()
+                .maximumSize(pagesMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(pagesTtlSeconds))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
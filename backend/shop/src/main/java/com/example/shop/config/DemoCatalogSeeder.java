@@ -2,6 +2,7 @@ package com.example.shop.config;
 
 import com.example.shop.model.Product;
 import com.example.shop.repository.ProductRepository;
+import com.example.shop.service.CatalogVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -24,9 +25,11 @@ public class DemoCatalogSeeder implements ApplicationRunner {
 
     private static final Logger log = LoggerFactory.getLogger(DemoCatalogSeeder.class);
     private final ProductRepository productRepository;
+    private final CatalogVersion catalogVersion;
 
-    public DemoCatalogSeeder(ProductRepository productRepository) {
+    public DemoCatalogSeeder(ProductRepository productRepository, CatalogVersion catalogVersion) {
         this.productRepository = productRepository;
+        this.catalogVersion = catalogVersion;
     }
 
     @Override
@@ -112,6 +115,8 @@ public class DemoCatalogSeeder implements ApplicationRunner {
         }
 
         productRepository.saveAll(productsToSave);
+        // 种子数据不发商品变更事件，直接递增目录版本
+        catalogVersion.bump();
         log.info("Synced demo catalog: created {}, updated images {}.", createdCount, updatedImageCount);
     }
 
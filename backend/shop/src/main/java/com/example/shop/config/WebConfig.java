@@ -13,6 +13,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:5173") // Vite 默认端口
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("Idempotency-Replayed", "Location", "Preference-Applied", "Next-Cursor")
                 .allowCredentials(true);
     }
 } 
\ No newline at end of file
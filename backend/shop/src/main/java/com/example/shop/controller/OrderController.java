@@ -1,57 +1,163 @@
 package com.example.shop.controller;
 
+import com.example.shop.exception.CheckoutPendingException;
 import com.example.shop.model.Order;
 import com.example.shop.model.User;
+import com.example.shop.service.AsyncOrderPlacementService;
+import com.example.shop.service.OrderAggregateService;
+import com.example.shop.service.OrderExportService;
+import com.example.shop.service.OrderIdempotencyService;
 import com.example.shop.service.OrderService;
 import com.example.shop.service.UserService;
 import com.example.shop.util.JwtTokenUtil;
+import com.example.shop.dto.CursorPageDto;
+import com.example.shop.dto.ExportFormat;
+import com.example.shop.dto.OrderAggregatesDto;
 import com.example.shop.dto.OrderDto;
+import com.example.shop.dto.OrderSummaryDto;
+import com.example.shop.dto.OrderFilter;
+import com.example.shop.dto.OrderPlacementDto;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENCY_REPLAYED_HEADER = "Idempotency-Replayed";
+    public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final OrderService orderService;
+    private final OrderIdempotencyService orderIdempotencyService;
+    private final AsyncOrderPlacementService asyncOrderPlacementService;
+    private final OrderExportService orderExportService;
+    private final OrderAggregateService orderAggregateService;
     private final UserService userService;
     private final JwtTokenUtil jwtTokenUtil;
 
     @Autowired
     public OrderController(OrderService orderService,
+                           OrderIdempotencyService orderIdempotencyService,
+                           AsyncOrderPlacementService asyncOrderPlacementService,
+                           OrderExportService orderExportService,
+                           OrderAggregateService orderAggregateService,
                            UserService userService,
                            JwtTokenUtil jwtTokenUtil) {
         this.orderService = orderService;
+        this.orderIdempotencyService = orderIdempotencyService;
+        this.asyncOrderPlacementService = asyncOrderPlacementService;
+        this.orderExportService = orderExportService;
+        this.orderAggregateService = orderAggregateService;
         this.userService = userService;
         this.jwtTokenUtil = jwtTokenUtil;
     }
 
-    // 创建订单
+    // 创建订单；带 Idempotency-Key 的重试直接返回首次请求的订单。
+    // 开启异步模式后，带 Prefer: respond-async 的请求入队并返回 202 和可轮询的下单句柄
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> createOrder(@RequestHeader("Authorization") String token,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
         User user = getUserFromToken(token);
-        Order order = orderService.createOrder(user);
-        return ResponseEntity.ok(order);
+        if (asyncOrderPlacementService.isEnabled() && prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            OrderPlacementDto queued = asyncOrderPlacementService.submit(user, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/placements/" + queued.getHandle()))
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(queued);
+        }
+        OrderIdempotencyService.Placement placement;
+        try {
+            placement = orderIdempotencyService.placeOrder(user, idempotencyKey);
+        } catch (CheckoutPendingException ex) {
+            // 批量结账等待超时但仍在进行：返回 202 和下单句柄，客户端轮询结果而不是重试
+            OrderPlacementDto pending = asyncOrderPlacementService.track(user, ex.getCheckout());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/placements/" + pending.getHandle()))
+                    .body(pending);
+        }
+        return ResponseEntity.ok()
+                .header(IDEMPOTENCY_REPLAYED_HEADER, String.valueOf(placement.replayed()))
+                .body(placement.order());
+    }
+
+    // 查询异步下单进度
+    @GetMapping("/placements/{handle}")
+    public ResponseEntity<OrderPlacementDto> getPlacement(@RequestHeader("Authorization") String token,
+                                                          @PathVariable String handle) {
+        User user = getUserFromToken(token);
+        return ResponseEntity.ok(asyncOrderPlacementService.getPlacement(user, handle));
     }
 
-    // 获取用户的所有订单
+    // 获取用户的订单列表：按创建时间倒序分页，响应体仍是订单数组；还有下一页时在 Next-Cursor 头里返回游标
     @GetMapping
-    public ResponseEntity<List<OrderDto>> getOrders(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<List<OrderSummaryDto>> getOrders(@RequestHeader("Authorization") String token,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit) {
         User user = getUserFromToken(token);
-        List<OrderDto> orders = orderService.getOrdersByUser(user);
-        return ResponseEntity.ok(orders);
+        CursorPageDto<OrderSummaryDto> page = orderService.getOrdersByUser(user, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.isHasMore()) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
+    // 后台订单列表：按创建时间倒序的游标分页结果，不带参数时返回默认大小的第一页
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin")
-    public ResponseEntity<List<OrderDto>> getAllOrdersForAdmin() {
-        List<OrderDto> orders = orderService.getAllOrdersForAdmin();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<CursorPageDto<OrderSummaryDto>> getAllOrdersForAdmin(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) Order.OrderStatus status,
+                                                  @RequestParam(required = false) Long userId,
+                                                  @RequestParam(required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
+                                                  @RequestParam(required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+                                                  @RequestParam(required = false) Boolean count) {
+        OrderFilter filter = new OrderFilter(status, userId, createdAfter, createdBefore);
+        return ResponseEntity.ok(orderService.findAdminOrderPage(filter, cursor, limit, Boolean.TRUE.equals(count)));
+    }
+
+    // 管理员接口 - 后台看板统计：各状态订单数、按分钟/小时/天的销售额和平均客单（内存滚动计数，不查库）
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/aggregates")
+    public ResponseEntity<OrderAggregatesDto> getOrderAggregates() {
+        return ResponseEntity.ok(orderAggregateService.getAggregates());
+    }
+
+    // 管理员接口 - 导出订单及订单项（服务端游标流式输出），可限定时间段，并从上次中断的订单之后续传；
+    // 只导出创建时间早于 now - commit-grace 的订单
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+            @RequestParam(required = false) Long afterOrderId) {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        OrderExportService.ExportWindow window = new OrderExportService.ExportWindow(from, to, afterCreatedAt, afterOrderId);
+        StreamingResponseBody body = outputStream -> orderExportService.exportOrders(exportFormat, window, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders." + exportFormat.getFileExtension() + "\"")
+                .body(body);
     }
 
     // 获取订单详情
@@ -1,14 +1,43 @@
 package com.example.shop.controller;
 
+import com.example.shop.dto.ExportFormat;
+import com.example.shop.dto.ProductBatchDto;
+import com.example.shop.dto.ProductDetailDto;
+import com.example.shop.dto.ProductFilter;
+import com.example.shop.dto.ProductImportResultDto;
+import com.example.shop.dto.ProductSearchHitDto;
+import com.example.shop.dto.ProductSort;
+import com.example.shop.exception.BadRequestException;
 import com.example.shop.model.Product;
+import com.example.shop.service.CatalogSnapshotService;
+import com.example.shop.service.CatalogVersion;
+import com.example.shop.service.ProductExportService;
+import com.example.shop.service.ProductImportService;
 import com.example.shop.service.ProductService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 
@@ -16,43 +45,176 @@ import org.springframework.security.access.prepost.PreAuthorize;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    // 允许浏览器和边缘缓存存储，但每次都必须带 ETag 回源校验（覆盖 Spring Security 默认的 no-store）
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final CatalogSnapshotService catalogSnapshotService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             CatalogVersion catalogVersion,
+                             ProductImportService productImportService,
+                             ProductExportService productExportService,
+                             CatalogSnapshotService catalogSnapshotService) {
         this.productService = productService;
+        this.catalogVersion = catalogVersion;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.catalogSnapshotService = catalogSnapshotService;
     }
 
-    // 公开接口 - 获取所有商品
+    // 公开接口 - 获取所有商品；带 after/limit 参数时返回 keyset 分页结果，
+    // 带过滤或排序参数时在数据库端过滤排序，每次只读取一页匹配的行。
+    // after 是商品 id，只能用于 id 排序；其他排序用上一页返回的 nextCursor 作为 cursor 翻页
     @GetMapping
     @PreAuthorize("permitAll()")  // 允许所有人访问
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) Long after,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) BigDecimal minPrice,
+                                            @RequestParam(required = false) BigDecimal maxPrice,
+                                            @RequestParam(required = false) Boolean inStock,
+                                            @RequestParam(required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAfter,
+                                            @RequestParam(required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore,
+                                            WebRequest webRequest) {
+        ProductFilter filter = new ProductFilter(minPrice, maxPrice, inStock, createdAfter, createdBefore);
+        ProductSort productSort = ProductSort.fromParameter(sort);
+        if (after != null && productSort != ProductSort.ID) {
+            throw new BadRequestException("after can only be used with sort=id; use cursor for other sorts");
+        }
+        boolean filtered = filter.hasCriteria() || productSort != ProductSort.ID || cursor != null;
+
+        // 先取版本再查数据：数据只可能比 ETag 更新，不会出现旧数据配新 ETag
+        CatalogVersion.Stamp version = catalogVersion.read();
+
+        // 快照模式：快照与当前版本一致且命中预先序列化好的页面时直接写出字节；
+        // 版本不一致（包括其他实例的写入）时请求重建，重建完成前走实时查询
+        Optional<CatalogSnapshotService.Snapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent() && !filtered) {
+            if (snapshot.get().eTag().equals(version.eTag())) {
+                Optional<CatalogSnapshotService.Body> cached = catalogSnapshotService.find(snapshot.get(), after, limit);
+                if (cached.isPresent()) {
+                    return snapshotResponse(snapshot.get(), cached.get(), webRequest);
+                }
+            } else {
+                catalogSnapshotService.requestRebuild();
+            }
+        }
+
+        String eTag = version.eTag();
+        Instant lastModified = version.lastModified();
+        if (webRequest.checkNotModified(eTag, lastModified.toEpochMilli())) {
+            return null;
+        }
+
+        Object body;
+        if (filtered) {
+            String pageCursor = cursor != null ? cursor : (after != null ? String.valueOf(after) : null);
+            body = productService.findProductPage(filter, productSort, pageCursor, limit);
+        } else if (after == null && limit == null) {
+            body = productService.getAllProducts();
+        } else {
+            body = productService.getProductPage(after, limit);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(body);
+    }
+
+    // 公开接口 - 商品搜索
+    @GetMapping("/search")
+    @PreAuthorize("permitAll()")  // 允许所有人访问
+    public ResponseEntity<List<ProductSearchHitDto>> searchProducts(@RequestParam("q") String query,
+                                                                    @RequestParam(required = false) Integer limit) {
+        List<ProductSearchHitDto> hits = productService.searchProducts(query, limit);
+        return ResponseEntity.ok(hits);
+    }
+
+    // 公开接口 - 按 id 批量获取商品，例如 /api/products/batch?ids=1,2,3
+    @GetMapping("/batch")
+    @PreAuthorize("permitAll()")  // 允许所有人访问
+    public ResponseEntity<ProductBatchDto> getProductsByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    // 公开接口 - 按 id 批量获取商品（POST 版本，id 较多时避免 URL 过长）
+    @PostMapping("/batch")
+    @PreAuthorize("permitAll()")  // 允许所有人访问
+    public ResponseEntity<ProductBatchDto> getProductsByIdsInBody(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
     }
 
     // 公开接口 - 获取单个商品
     @GetMapping("/{id}")
     @PreAuthorize("permitAll()")  // 允许所有人访问
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Product product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+    public ResponseEntity<ProductDetailDto> getProductById(@PathVariable Long id, WebRequest webRequest) {
+        ProductDetailDto product = productService.getProductDetail(id);
+        Instant updatedAt = toInstant(product.getUpdatedAt());
+        String eTag = productETag(product.getId(), updatedAt);
+        long lastModified = updatedAt == null ? -1 : updatedAt.toEpochMilli();
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(eTag);
+        if (updatedAt != null) {
+            response.lastModified(updatedAt);
+        }
+        return response.body(product);
     }
 
     // 管理员接口 - 添加商品
     @PostMapping("/add")
     @PreAuthorize("hasRole('ADMIN')")  // 确保这里是hasRole而不是hasAuthority
-    public ResponseEntity<Product> addProduct(@Valid @RequestBody Product product) {
+    public ResponseEntity<ProductDetailDto> addProduct(@Valid @RequestBody Product product) {
         Product newProduct = productService.addProduct(product);
-        return ResponseEntity.ok(newProduct);
+        return ResponseEntity.ok(ProductDetailDto.from(newProduct));
+    }
+
+    // 管理员接口 - 批量导入商品（CSV 或 NDJSON，流式解析）
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportResultDto> importProducts(HttpServletRequest request) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        try (Reader reader = new InputStreamReader(request.getInputStream(), charset)) {
+            ProductImportResultDto result = "csv".equals(contentType.getSubtype())
+                    ? productImportService.importCsv(reader)
+                    : productImportService.importNdjson(reader);
+            return ResponseEntity.ok(result);
+        }
+    }
+
+    // 管理员接口 - 导出全部商品（游标流式输出，内存占用与商品数量无关）
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        StreamingResponseBody body = outputStream -> productExportService.exportProducts(exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + exportFormat.getFileExtension() + "\"")
+                .body(body);
     }
 
     // 管理员接口 - 更新商品
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")  // 仅管理员可访问
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody Product productDetails) {
+    public ResponseEntity<ProductDetailDto> updateProduct(@PathVariable Long id, @Valid @RequestBody Product productDetails) {
         Product updatedProduct = productService.updateProduct(id, productDetails);
-        return ResponseEntity.ok(updatedProduct);
+        return ResponseEntity.ok(ProductDetailDto.from(updatedProduct));
     }
 
     // 管理员接口 - 删除商品
@@ -62,4 +224,54 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.ok("Product deleted successfully");
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<byte[]> snapshotResponse(CatalogSnapshotService.Snapshot snapshot,
+                                                    CatalogSnapshotService.Body body,
+                                                    WebRequest webRequest) {
+        if (webRequest.checkNotModified(snapshot.eTag(), snapshot.lastModified().toEpochMilli())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(snapshot.eTag())
+                .lastModified(snapshot.lastModified())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(body.json());
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            // gzip;q=0 表示客户端明确拒绝
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0{0,3})?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private String productETag(Long id, Instant updatedAt) {
+        String revision = updatedAt == null
+                ? "0"
+                : Long.toHexString(updatedAt.getEpochSecond()) + "." + Integer.toHexString(updatedAt.getNano());
+        return "\"product-" + id + "-" + revision + "\"";
+    }
+
+    private Instant toInstant(LocalDateTime timestamp) {
+        return timestamp == null ? null : timestamp.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.shop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+    private List<T> items;
+    // Opaque cursor for the next page; null when this is the last page
+    private String nextCursor;
+    private boolean hasMore;
+    // Only present when the caller asked for a count; capped lists report the cap
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalCount;
+    // Only present with totalCount: true when more rows matched than were counted
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean totalCountCapped;
+
+    public CursorPageDto(List<T> items, String nextCursor, boolean hasMore) {
+        this(items, nextCursor, hasMore, null, null);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.shop.dto;
+
+import com.example.shop.model.Order.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin dashboard aggregates, served from in-memory rolling counters. Buckets are oldest first;
+ * the basket averages cover the per-hour window.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderAggregatesDto {
+    private LocalDateTime generatedAt;
+    private Map<OrderStatus, Long> ordersByStatus;
+    private List<SalesBucketDto> revenuePerMinute;
+    private List<SalesBucketDto> revenuePerHour;
+    private List<SalesBucketDto> revenuePerDay;
+    private BigDecimal averageOrderValue;
+    private BigDecimal averageItemsPerOrder;
+}
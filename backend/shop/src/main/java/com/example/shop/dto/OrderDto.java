@@ -2,11 +2,14 @@ package com.example.shop.dto;
 
 import com.example.shop.model.Order.OrderStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Set;
 
 @Data
+@NoArgsConstructor
 public class OrderDto {
     private Long id;
     private BigDecimal totalPrice;
@@ -14,4 +17,13 @@ public class OrderDto {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Set<OrderItemDto> orderItems;
-} 
\ No newline at end of file
+
+    // JPQL 构造器投影使用；订单项由第二条查询批量填充
+    public OrderDto(Long id, BigDecimal totalPrice, OrderStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.totalPrice = totalPrice;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
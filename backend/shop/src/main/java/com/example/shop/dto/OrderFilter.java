@@ -0,0 +1,21 @@
+package com.example.shop.dto;
+
+import com.example.shop.model.Order.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Admin order listing filter. Null fields are not applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderFilter {
+    private OrderStatus status;
+    private Long userId;
+    private LocalDateTime createdAfter;
+    private LocalDateTime createdBefore;
+}
@@ -1,9 +1,12 @@
 package com.example.shop.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.math.BigDecimal;
 
 @Data
+@NoArgsConstructor
 public class OrderItemDto {
     private Long id;
     private Long orderId;
@@ -13,4 +16,17 @@ public class OrderItemDto {
     private Integer quantity;
     private BigDecimal unitPrice;
     private BigDecimal totalPrice;
-} 
+
+    // JPQL 构造器投影使用，小计在这里计算
+    public OrderItemDto(Long id, Long orderId, Long productId, String productName, String productImageUrl,
+                        Integer quantity, BigDecimal unitPrice) {
+        this.id = id;
+        this.orderId = orderId;
+        this.productId = productId;
+        this.productName = productName;
+        this.productImageUrl = productImageUrl;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.shop.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Handle for an order placed asynchronously; clients poll it until the order is created or the checkout fails.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPlacementDto {
+
+    public enum Status {
+        QUEUED,
+        PROCESSING,
+        PENDING,    // 订单已创建，等待支付
+        FAILED
+    }
+
+    private String handle;
+    private Status status;
+    private Long orderId;
+    private String message;
+
+    @JsonIgnore
+    private Long userId;
+
+    public OrderPlacementDto withStatus(Status status, Long orderId, String message) {
+        return new OrderPlacementDto(handle, status, orderId, message, userId);
+    }
+}
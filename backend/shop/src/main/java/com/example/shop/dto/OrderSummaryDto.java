@@ -0,0 +1,42 @@
+package com.example.shop.dto;
+
+import com.example.shop.model.Order.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Order list row, read from the order_summaries read model.
+ */
+@Data
+@NoArgsConstructor
+public class OrderSummaryDto {
+    private Long id;
+    private OrderStatus status;
+    private BigDecimal totalPrice;
+    private Integer itemCount;
+    private String productNames;
+    private String thumbnailUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    // 用户订单列表沿用原来带订单项的响应结构；后台列表不加载，不输出
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Set<OrderItemDto> orderItems;
+
+    // JPQL 构造器投影使用；订单项由第二条查询批量填充
+    public OrderSummaryDto(Long id, OrderStatus status, BigDecimal totalPrice, Integer itemCount, String productNames,
+                           String thumbnailUrl, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.status = status;
+        this.totalPrice = totalPrice;
+        this.itemCount = itemCount;
+        this.productNames = productNames;
+        this.thumbnailUrl = thumbnailUrl;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a lookup by id set: products in request order plus the ids that did not resolve.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchDto {
+    private List<ProductSummaryDto> products;
+    private List<Long> missingIds;
+}
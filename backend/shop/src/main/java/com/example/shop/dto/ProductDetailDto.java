@@ -0,0 +1,40 @@
+package com.example.shop.dto;
+
+import com.example.shop.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Product detail page payload, the only product representation that carries description and details in full.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDetailDto {
+    private Long id;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private String imageUrl;
+    private Integer stock;
+    private String details;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    // 管理员编辑时回传，用于检测并发修改
+    private Long version;
+
+    public static ProductDetailDto from(Product product) {
+        return new ProductDetailDto(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getImageUrl(), product.getStock(), product.getDetails(),
+                product.getCreatedAt(), product.getUpdatedAt(), product.getVersion());
+    }
+
+    // 还原成游离态的商品实体，供购物车关联外键和校验库存使用，不能用来更新商品
+    public Product toProduct() {
+        return new Product(id, name, description, price, imageUrl, stock, details, createdAt, updatedAt, version);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Server-side catalog filter. Null fields are not applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+    private LocalDateTime createdAfter;
+    private LocalDateTime createdBefore;
+
+    public boolean hasCriteria() {
+        return minPrice != null || maxPrice != null || Boolean.TRUE.equals(inStock)
+                || createdAfter != null || createdBefore != null;
+    }
+}
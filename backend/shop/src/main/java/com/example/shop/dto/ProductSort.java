@@ -0,0 +1,28 @@
+package com.example.shop.dto;
+
+import com.example.shop.exception.BadRequestException;
+
+import java.util.Locale;
+
+/**
+ * Sort orders supported by the catalog listing. Every order ends with the product id as a tie-breaker
+ * so keyset cursors stay unambiguous.
+ */
+public enum ProductSort {
+    ID,
+    PRICE_ASC,
+    PRICE_DESC,
+    NEWEST;
+
+    public static ProductSort fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        for (ProductSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value.trim().replace('-', '_'))) {
+                return sort;
+            }
+        }
+        throw new BadRequestException("Unsupported sort: " + value.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Catalog list row. Deliberately leaves out the TEXT columns (details, full description);
+ * {@code shortDescription} is cut to {@link #SHORT_DESCRIPTION_LENGTH} characters in the query itself.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummaryDto {
+    public static final int SHORT_DESCRIPTION_LENGTH = 160;
+
+    private Long id;
+    private String name;
+    private String shortDescription;
+    private BigDecimal price;
+    private String imageUrl;
+    private Integer stock;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,21 @@
+package com.example.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Orders placed in one time bucket (minute, hour or day), net of orders cancelled since.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesBucketDto {
+    private LocalDateTime start;
+    private long orders;
+    private BigDecimal revenue;
+    private long items;
+}
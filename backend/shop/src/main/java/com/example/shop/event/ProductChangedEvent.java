@@ -0,0 +1,41 @@
+package com.example.shop.event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published after products are written so that derived in-memory state (caches, indexes)
+ * can be refreshed. Listeners run after the surrounding transaction commits.
+ * {@code firstId}/{@code lastId} bound the generated ids of a bulk import and are null otherwise.
+ */
+public record ProductChangedEvent(Type type, Set<Long> productIds, Long firstId, Long lastId) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STOCK_CHANGED,
+        // New rows were inserted in bulk; only the range of their generated ids is tracked
+        BULK_IMPORTED
+    }
+
+    public ProductChangedEvent {
+        productIds = Set.copyOf(productIds);
+    }
+
+    public ProductChangedEvent(Type type, Set<Long> productIds) {
+        this(type, productIds, null, null);
+    }
+
+    public static ProductChangedEvent of(Type type, Long productId) {
+        return new ProductChangedEvent(type, Set.of(productId));
+    }
+
+    public static ProductChangedEvent stockChanged(Collection<Long> productIds) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, Set.copyOf(productIds));
+    }
+
+    public static ProductChangedEvent bulkImported(long firstId, long lastId) {
+        return new ProductChangedEvent(Type.BULK_IMPORTED, Set.of(), firstId, lastId);
+    }
+}
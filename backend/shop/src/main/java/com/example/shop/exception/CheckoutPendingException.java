@@ -0,0 +1,20 @@
+package com.example.shop.exception;
+
+import com.example.shop.model.Order;
+
+import java.util.concurrent.CompletableFuture;
+
+// 等待结账超时，但请求仍在处理中；携带最终的结账结果，由调用方换成可轮询的下单句柄
+public class CheckoutPendingException extends RuntimeException {
+
+    private final CompletableFuture<Order> checkout;
+
+    public CheckoutPendingException(CompletableFuture<Order> checkout) {
+        super("Checkout is still in progress");
+        this.checkout = checkout;
+    }
+
+    public CompletableFuture<Order> getCheckout() {
+        return checkout;
+    }
+}
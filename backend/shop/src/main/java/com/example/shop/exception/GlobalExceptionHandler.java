@@ -1,5 +1,8 @@
 package com.example.shop.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +16,31 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    // 处理请求参数或内容不合法
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<?> badRequestException(BadRequestException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    // 并发修改冲突：客户端拿到的版本已过期，或重试后仍然冲突
+    @ExceptionHandler({ConflictException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<?> conflictException(RuntimeException ex) {
+        String message = ex instanceof ConflictException ? ex.getMessage() : "Product was changed concurrently, please reload";
+        return new ResponseEntity<>(message, HttpStatus.CONFLICT);
+    }
+
+    // 服务暂时无法处理（如下单队列已满），提示客户端稍后重试
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<?> serviceUnavailableException(ServiceUnavailableException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // 结账等待商品行锁超时，提示客户端稍后重试
+    @ExceptionHandler({PessimisticLockingFailureException.class, QueryTimeoutException.class})
+    public ResponseEntity<?> lockTimeoutException(RuntimeException ex) {
+        return new ResponseEntity<>("Checkout is busy, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // 处理其他异常
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> globalExceptionHandler(Exception ex) {
@@ -0,0 +1,24 @@
+package com.example.shop.exception;
+
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A lock on product rows could not be acquired in time; carries the products involved so contention can be
+ * attributed per SKU.
+ */
+public class ProductContentionException extends PessimisticLockingFailureException {
+
+    private final List<Long> productIds;
+
+    public ProductContentionException(Collection<Long> productIds, Throwable cause) {
+        super("Timed out waiting for product locks " + productIds, cause);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -3,6 +3,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import jakarta.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "cart_items")
@@ -24,4 +25,13 @@ public class CartItem {
 
     @Column(nullable = false)
     private Integer quantity;
+
+    // 库存预留模式下为该购物车项从库存中扣出的数量，以及预留到期时间
+    @JsonIgnore
+    @Column(name = "held_quantity", nullable = false, columnDefinition = "integer default 0")
+    private int heldQuantity;
+
+    @JsonIgnore
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
 }
\ No newline at end of file
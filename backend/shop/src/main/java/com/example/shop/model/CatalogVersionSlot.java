@@ -0,0 +1,24 @@
+package com.example.shop.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// 商品目录版本号的一个分段；商品写入时在同一事务里递增随机一个分段，各分段之和就是目录版本
+@Entity
+@Table(name = "catalog_versions")
+@Data
+@NoArgsConstructor
+public class CatalogVersionSlot {
+
+    @Id
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
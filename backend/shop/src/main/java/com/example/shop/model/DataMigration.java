@@ -0,0 +1,22 @@
+package com.example.shop.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// 已完成的一次性数据迁移（如读模型回填）；有记录的迁移启动时不再执行
+@Entity
+@Table(name = "data_migrations")
+@Data
+@NoArgsConstructor
+public class DataMigration {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
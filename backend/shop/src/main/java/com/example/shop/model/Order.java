@@ -14,7 +14,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_orders_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})
+}, indexes = {
+        // 超时未支付订单扫描和后台按状态筛选
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at, id"),
+        // 后台按用户筛选
+        @Index(name = "idx_orders_user_created_at", columnList = "user_id, created_at, id"),
+        // 后台不带筛选条件按时间倒序翻页
+        @Index(name = "idx_orders_created_at", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -60,4 +69,9 @@ public class Order {
     @Column(name = "status", nullable = false)
     private OrderStatus status = OrderStatus.PENDING;
 
+    // 客户端提供的 Idempotency-Key，同一用户下唯一
+    @JsonIgnore
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
 }
\ No newline at end of file
@@ -14,7 +14,12 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        // 热点商品定期写回时按 stock_pending 扫描
+        @Index(name = "idx_order_items_stock_pending", columnList = "stock_pending, id"),
+        // 订单历史、摘要回填、导出和过期取消都按 order_id 取订单项，并按 id 排序
+        @Index(name = "idx_order_items_order_id", columnList = "order_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -43,6 +48,11 @@ public class OrderItem {
     @Column(name = "unit_price", precision = 10, scale = 2, nullable = false)
     private BigDecimal unitPrice;
 
+    // 库存在 HotSkuReservationEngine 内存中扣减，尚未写回 products 表
+    @JsonIgnore
+    @Column(name = "stock_pending", nullable = false, columnDefinition = "boolean default false")
+    private boolean stockPending;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,64 @@
+package com.example.shop.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Denormalized list row of an order (read model). Written in the same transaction as the order by
+ * {@link com.example.shop.service.OrderSummaryProjector}, so order lists read this one table instead of
+ * joining orders, order items and products.
+ */
+@Entity
+@Table(name = "order_summaries", indexes = {
+        // 用户的订单列表
+        @Index(name = "idx_order_summaries_user_created_at", columnList = "user_id, created_at, order_id"),
+        // 后台按状态筛选
+        @Index(name = "idx_order_summaries_status_created_at", columnList = "status, created_at, order_id"),
+        // 后台不带筛选条件按时间倒序翻页
+        @Index(name = "idx_order_summaries_created_at", columnList = "created_at, order_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+
+    public static final int PRODUCT_NAMES_LENGTH = 500;
+
+    // 与订单 id 相同，不单独生成
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Order.OrderStatus status;
+
+    @Column(name = "total_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalPrice;
+
+    // 商品总件数
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount;
+
+    // 下单时的商品名称，逗号分隔，过长时截断
+    @Column(name = "product_names", length = PRODUCT_NAMES_LENGTH)
+    private String productNames;
+
+    // 第一件商品的图片
+    @Column(name = "thumbnail_url", length = 255)
+    private String thumbnailUrl;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
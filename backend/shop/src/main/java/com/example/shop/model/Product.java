@@ -13,7 +13,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // 支撑按价格 / 上架时间排序的 keyset 分页
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_created_at_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -48,4 +52,9 @@ public class Product {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // 乐观锁版本号；绕过 JPA 的库存 UPDATE 也会递增它
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
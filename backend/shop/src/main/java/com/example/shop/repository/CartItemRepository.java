@@ -4,8 +4,12 @@ import com.example.shop.model.CartItem;
 import com.example.shop.model.Cart;
 import com.example.shop.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,32 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     // 根据购物车查找购物车项列表
     List<CartItem> findByCart(Cart cart);
 
+    // 根据购物车查找购物车项，并用 join fetch 一次带出商品（避免逐个加载商品）
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product WHERE ci.cart = :cart")
+    List<CartItem> findByCartWithProduct(@Param("cart") Cart cart);
+
+    // 一次查出多个用户的购物车项（连同购物车和商品），按商品 id 排序
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product p JOIN FETCH ci.cart c "
+            + "WHERE c.user.id IN :userIds ORDER BY p.id")
+    List<CartItem> findByCartUserIdInWithProduct(@Param("userIds") Collection<Long> userIds);
+
+    // 删除多个购物车中的全部购物车项（单条 DELETE 语句）
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id IN :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
+
+    // 购物车中全部购物车项的 id
+    @Query("SELECT ci.id FROM CartItem ci WHERE ci.cart.id = :cartId")
+    List<Long> findIdsByCartId(@Param("cartId") Long cartId);
+
+    // 删除购物车中的全部购物车项（单条 DELETE 语句）
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") Long cartId);
+
+    // 用户购物车中是否有商品
+    boolean existsByCartUserId(Long userId);
+
     // 根据购物车和商品查找购物车项
     Optional<CartItem> findByCartAndProduct(Cart cart, Product product);
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.shop.repository;
 
+import com.example.shop.dto.OrderItemDto;
 import com.example.shop.model.OrderItem;
 import com.example.shop.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -7,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,6 +16,9 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     // 根据订单查找订单项列表
     List<OrderItem> findByOrder(Order order);
 
-    @Query("SELECT oi FROM OrderItem oi JOIN FETCH oi.product WHERE oi.order.id = :orderId")
-    List<OrderItem> findByOrderId(@Param("orderId") Long orderId);
+    // 一次查出一组订单的全部订单项（连同商品名称和图片），直接投影成 DTO
+    @Query("SELECT new com.example.shop.dto.OrderItemDto(oi.id, oi.order.id, p.id, p.name, p.imageUrl, "
+            + "oi.quantity, oi.unitPrice) FROM OrderItem oi JOIN oi.product p "
+            + "WHERE oi.order.id IN :orderIds ORDER BY oi.order.id, oi.id")
+    List<OrderItemDto> findDtosByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
\ No newline at end of file
@@ -2,19 +2,27 @@ package com.example.shop.repository;
 
 import com.example.shop.model.Order;
 import com.example.shop.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     // 根据用户查找订单列表
     List<Order> findByUser(User user);
 
-    // 添加新的查询方法，使用 JOIN FETCH 预加载 orderItems
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.user = :user")
-    List<Order> findOrdersWithItemsByUser(@Param("user") User user);
+
+    // 加行锁读取订单，状态变更与超时取消互斥
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    // 根据用户和幂等键查找已创建的订单
+    Optional<Order> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.example.shop.repository;
+
+import com.example.shop.model.OrderSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Long>, OrderSummaryRepositoryCustom {
+}
@@ -0,0 +1,23 @@
+package com.example.shop.repository;
+
+import com.example.shop.dto.OrderFilter;
+import com.example.shop.dto.OrderSummaryDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderSummaryRepositoryCustom {
+
+    /**
+     * Reads one keyset page of order summaries matching {@code filter}, newest first
+     * ({@code created_at DESC, order_id DESC}). {@code afterCreatedAt}/{@code afterId} identify the last row of
+     * the previous page (both null for the first page).
+     */
+    List<OrderSummaryDto> findPage(OrderFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit);
+
+    /**
+     * Counts order summaries matching {@code filter}, but stops at {@code cap}: at most {@code cap} index
+     * entries are read, and a result equal to {@code cap} means "at least {@code cap}".
+     */
+    long countUpTo(OrderFilter filter, int cap);
+}
@@ -0,0 +1,84 @@
+package com.example.shop.repository;
+
+import com.example.shop.dto.OrderFilter;
+import com.example.shop.dto.OrderSummaryDto;
+import com.example.shop.model.OrderSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin order listing over the order_summaries read model. Every filter combination is served by an index
+ * declared on {@link OrderSummary} ((status, created_at, order_id), (user_id, created_at, order_id) or
+ * (created_at, order_id)), so a page is an index range scan that stops after {@code limit} rows, and a
+ * capped count stops after {@code cap} entries.
+ */
+public class OrderSummaryRepositoryImpl implements OrderSummaryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummaryDto> findPage(OrderFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> predicates = filterPredicates(filter, params);
+        if (afterId != null) {
+            // (created_at, id) 复合游标，倒序：时间更早，或时间相同且 id 更小
+            predicates.add("(s.createdAt < :afterCreatedAt or (s.createdAt = :afterCreatedAt and s.orderId < :afterId))");
+            params.put("afterCreatedAt", afterCreatedAt);
+            params.put("afterId", afterId);
+        }
+        TypedQuery<OrderSummaryDto> query = entityManager.createQuery(
+                "select new com.example.shop.dto.OrderSummaryDto(s.orderId, s.status, s.totalPrice, s.itemCount, "
+                        + "s.productNames, s.thumbnailUrl, s.createdAt, s.updatedAt) from OrderSummary s"
+                        + where(predicates) + " order by s.createdAt desc, s.orderId desc", OrderSummaryDto.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countUpTo(OrderFilter filter, int cap) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> predicates = filterPredicates(filter, params);
+        // 子查询按索引顺序读取、先 limit 再 count，最多读取 cap 个索引项（HQL 的 limit 必须跟在 order by 之后）
+        TypedQuery<Long> query = entityManager.createQuery("select count(*) from (select s.orderId as id "
+                + "from OrderSummary s" + where(predicates) + " order by s.createdAt desc, s.orderId desc limit :cap) matched",
+                Long.class);
+        params.forEach(query::setParameter);
+        return query.setParameter("cap", cap).getSingleResult();
+    }
+
+    private List<String> filterPredicates(OrderFilter filter, Map<String, Object> params) {
+        List<String> predicates = new ArrayList<>();
+        if (filter == null) {
+            return predicates;
+        }
+        if (filter.getStatus() != null) {
+            predicates.add("s.status = :status");
+            params.put("status", filter.getStatus());
+        }
+        if (filter.getUserId() != null) {
+            predicates.add("s.userId = :userId");
+            params.put("userId", filter.getUserId());
+        }
+        if (filter.getCreatedAfter() != null) {
+            predicates.add("s.createdAt >= :createdAfter");
+            params.put("createdAfter", filter.getCreatedAfter());
+        }
+        if (filter.getCreatedBefore() != null) {
+            predicates.add("s.createdAt < :createdBefore");
+            params.put("createdBefore", filter.getCreatedBefore());
+        }
+        return predicates;
+    }
+
+    private static String where(List<String> predicates) {
+        return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+    }
+}
@@ -1,11 +1,55 @@
 package com.example.shop.repository;
 
 
+import com.example.shop.dto.ProductDetailDto;
+import com.example.shop.dto.ProductSummaryDto;
 import com.example.shop.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    // 您可以在此处添加自定义查询方法
-}
\ No newline at end of file
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // 列表行的构造表达式：描述只截取前 160 个字符，不读取 details
+    String SUMMARY_SELECT = "SELECT new com.example.shop.dto.ProductSummaryDto(p.id, p.name, "
+            + "SUBSTRING(p.description, 1, 160), p.price, p.imageUrl, p.stock, p.createdAt) FROM Product p ";
+
+    // 全部商品的列表行（不分页的旧接口）
+    @Query(SUMMARY_SELECT + "ORDER BY p.id")
+    List<ProductSummaryDto> findAllSummaries();
+
+    // 按主键做 keyset 分页，只查询列表需要的列（不读取 TEXT 字段）
+    @Query(SUMMARY_SELECT + "WHERE p.id > :after ORDER BY p.id")
+    List<ProductSummaryDto> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    // 按 id 集合一次性查询列表行（IN 查询）
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<ProductSummaryDto> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 商品详情
+    @Query("SELECT new com.example.shop.dto.ProductDetailDto(p.id, p.name, p.description, p.price, p.imageUrl, "
+            + "p.stock, p.details, p.createdAt, p.updatedAt, p.version) FROM Product p WHERE p.id = :id")
+    Optional<ProductDetailDto> findDetailById(@Param("id") Long id);
+
+    // 按主键分批加载 (afterId, lastId] 范围内的完整实体（用于构建内存索引等批处理）
+    List<Product> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Long afterId, Long lastId, Limit limit);
+
+    // 只读游标流式读取全部商品，调用方必须在事务内消费并关闭 Stream
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllByOrderByIdAsc();
+}
@@ -0,0 +1,34 @@
+package com.example.shop.repository;
+
+import com.example.shop.dto.ProductFilter;
+import com.example.shop.dto.ProductSort;
+import com.example.shop.dto.ProductSummaryDto;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    record StockLevel(Long productId, int stock) {
+    }
+
+    /**
+     * Row-locks the given products with a single {@code SELECT ... ORDER BY id FOR UPDATE} and returns their stock.
+     * Locks are always taken in id order, so two checkouts sharing products cannot deadlock.
+     * The statement gives up after {@code timeoutMillis} (on PostgreSQL through a transaction-local
+     * {@code lock_timeout}); the failure surfaces as a Spring {@code PessimisticLockingFailureException}
+     * or {@code QueryTimeoutException}.
+     */
+    List<StockLevel> lockStockForUpdate(Collection<Long> productIds, int timeoutMillis);
+
+    /**
+     * Reads one keyset page of list rows matching {@code filter} in {@code sort} order.
+     * {@code afterValue}/{@code afterId} are the sort key and id of the last row of the previous page
+     * (both null for the first page); {@code afterValue} is ignored for {@link ProductSort#ID}.
+     */
+    List<ProductSummaryDto> findSummaries(ProductFilter filter,
+                                          ProductSort sort,
+                                          Object afterValue,
+                                          Long afterId,
+                                          int limit);
+}
@@ -0,0 +1,161 @@
+package com.example.shop.repository;
+
+import com.example.shop.dto.ProductFilter;
+import com.example.shop.dto.ProductSort;
+import com.example.shop.dto.ProductSummaryDto;
+import com.example.shop.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Criteria-based implementation of the filtered catalog listing. Each sort order matches an index
+ * declared on {@link Product} ((price, id) and (created_at, id)), so a page is read by an index range
+ * scan that stops after {@code limit} rows. For the newest-first order, products without a creation time
+ * come first (by id, descending), which is where a descending scan of the (created_at, id) index puts them.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public List<ProductSummaryDto> findSummaries(ProductFilter filter,
+                                                 ProductSort sort,
+                                                 Object afterValue,
+                                                 Long afterId,
+                                                 int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummaryDto> query = cb.createQuery(ProductSummaryDto.class);
+        Root<Product> product = query.from(Product.class);
+        Path<Long> id = product.get("id");
+        Path<BigDecimal> price = product.get("price");
+        Path<LocalDateTime> createdAt = product.get("createdAt");
+
+        query.select(cb.construct(ProductSummaryDto.class, id, product.get("name"),
+                cb.substring(product.get("description"), 1, ProductSummaryDto.SHORT_DESCRIPTION_LENGTH),
+                price, product.get("imageUrl"), product.get("stock"), createdAt));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter != null) {
+            if (filter.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(price, filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(price, filter.getMaxPrice()));
+            }
+            if (Boolean.TRUE.equals(filter.getInStock())) {
+                predicates.add(cb.greaterThan(product.<Integer>get("stock"), 0));
+            }
+            if (filter.getCreatedAfter() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(createdAt, filter.getCreatedAfter()));
+            }
+            if (filter.getCreatedBefore() != null) {
+                predicates.add(cb.lessThan(createdAt, filter.getCreatedBefore()));
+            }
+        }
+
+        switch (sort) {
+            case ID -> {
+                if (afterId != null) {
+                    predicates.add(cb.greaterThan(id, afterId));
+                }
+                query.orderBy(cb.asc(id));
+            }
+            case PRICE_ASC -> {
+                if (afterId != null) {
+                    predicates.add(after(cb, price, (BigDecimal) afterValue, id, afterId, false));
+                }
+                query.orderBy(cb.asc(price), cb.asc(id));
+            }
+            case PRICE_DESC -> {
+                if (afterId != null) {
+                    predicates.add(after(cb, price, (BigDecimal) afterValue, id, afterId, true));
+                }
+                query.orderBy(cb.desc(price), cb.desc(id));
+            }
+            case NEWEST -> {
+                if (afterId != null && afterValue == null) {
+                    // 游标仍在 created_at 为空的行中：剩下的空值行，以及全部非空行
+                    predicates.add(cb.or(cb.and(cb.isNull(createdAt), cb.lessThan(id, afterId)),
+                            cb.isNotNull(createdAt)));
+                } else if (afterId != null) {
+                    predicates.add(after(cb, createdAt, (LocalDateTime) afterValue, id, afterId, true));
+                }
+                query.orderBy(((HibernateCriteriaBuilder) cb).desc(createdAt, true), cb.desc(id));
+            }
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<StockLevel> lockStockForUpdate(Collection<Long> productIds, int timeoutMillis) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        // PostgreSQL 忽略 lock.timeout 提示，查询超时又只精确到秒：在本事务内设置 lock_timeout（事务结束即失效）；
+        // 提示保留给 H2 等其他数据库
+        if (isPostgres()) {
+            entityManager.createNativeQuery("SELECT set_config('lock_timeout', :timeout, true)")
+                    .setParameter("timeout", timeoutMillis + "ms")
+                    .getSingleResult();
+        }
+        // 只锁 id 和 stock 两列对应的行，按 id 排序加锁，查询超时即放弃等待
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT id, stock FROM products WHERE id IN (:ids) ORDER BY id FOR UPDATE")
+                .setParameter("ids", productIds)
+                .setHint("jakarta.persistence.query.timeout", timeoutMillis)
+                .setHint("jakarta.persistence.lock.timeout", timeoutMillis)
+                .getResultList();
+        List<StockLevel> levels = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            levels.add(new StockLevel(((Number) row[0]).longValue(), ((Number) row[1]).intValue()));
+        }
+        return levels;
+    }
+
+    private boolean isPostgres() {
+        Boolean value = postgres;
+        if (value == null) {
+            value = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            postgres = value;
+        }
+        return value;
+    }
+
+    // (key, id) 复合游标：key 严格在后，或 key 相同且 id 在后
+    private <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb,
+                                                               Path<T> key,
+                                                               T keyValue,
+                                                               Path<Long> id,
+                                                               Long afterId,
+                                                               boolean descending) {
+        if (descending) {
+            return cb.or(cb.lessThan(key, keyValue),
+                    cb.and(cb.equal(key, keyValue), cb.lessThan(id, afterId)));
+        }
+        return cb.or(cb.greaterThan(key, keyValue),
+                cb.and(cb.equal(key, keyValue), cb.greaterThan(id, afterId)));
+    }
+}
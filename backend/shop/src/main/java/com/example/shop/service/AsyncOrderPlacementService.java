@@ -0,0 +1,160 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.OrderPlacementDto;
+import com.example.shop.exception.BadRequestException;
+import com.example.shop.exception.CheckoutPendingException;
+import com.example.shop.exception.ResourceNotFoundException;
+import com.example.shop.exception.ServiceUnavailableException;
+import com.example.shop.model.Order;
+import com.example.shop.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional asynchronous order placement: requests are validated and queued, and a bounded worker pool runs
+ * the checkouts. When the queue is full new requests are refused with 503 instead of piling up on the database.
+ */
+@Slf4j
+@Service
+public class AsyncOrderPlacementService {
+
+    private final OrderIdempotencyService orderIdempotencyService;
+    private final CartService cartService;
+    private final boolean enabled;
+    private final ThreadPoolExecutor workers;
+    private final Cache<String, OrderPlacementDto> placements;
+
+    @Autowired
+    public AsyncOrderPlacementService(OrderIdempotencyService orderIdempotencyService,
+                                      CartService cartService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${shop.orders.async.enabled:false}") boolean enabled,
+                                      @Value("${shop.orders.async.workers:4}") int workerCount,
+                                      @Value("${shop.orders.async.queue-capacity:200}") int queueCapacity,
+                                      @Value("${shop.orders.async.handle-ttl-minutes:60}") long handleTtlMinutes) {
+        this.orderIdempotencyService = orderIdempotencyService;
+        this.cartService = cartService;
+        this.enabled = enabled;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "order-placement-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.placements = Caffeine.newBuilder()
+                .maximumSize(Math.max(10_000, queueCapacity * 10L))
+                .expireAfterWrite(Duration.ofMinutes(handleTtlMinutes))
+                .build();
+        Gauge.builder("shop.orders.async.queued", workers, executor -> executor.getQueue().size())
+                .description("Order placements waiting for a checkout worker")
+                .register(meterRegistry);
+        Gauge.builder("shop.orders.async.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Checkouts currently running on the order placement workers")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 校验并入队，立即返回可轮询的下单句柄
+    public OrderPlacementDto submit(User user, String idempotencyKey) {
+        if (!cartService.hasItems(user)) {
+            throw new BadRequestException("Cart is empty");
+        }
+
+        String handle = UUID.randomUUID().toString();
+        OrderPlacementDto queued = new OrderPlacementDto(handle, OrderPlacementDto.Status.QUEUED, null, null, user.getId());
+        placements.put(handle, queued);
+        try {
+            workers.execute(() -> place(queued, user, idempotencyKey));
+        } catch (RejectedExecutionException ex) {
+            placements.invalidate(handle);
+            throw new ServiceUnavailableException("Checkout queue is full, please retry");
+        }
+        return queued;
+    }
+
+    // 同步下单等待超时后接手仍在进行的结账，返回可轮询的下单句柄
+    public OrderPlacementDto track(User user, CompletableFuture<Order> checkout) {
+        String handle = UUID.randomUUID().toString();
+        OrderPlacementDto processing = new OrderPlacementDto(handle, OrderPlacementDto.Status.PROCESSING, null, null, user.getId());
+        placements.put(handle, processing);
+        checkout.whenComplete((order, failure) -> placements.put(handle, failure == null
+                ? processing.withStatus(OrderPlacementDto.Status.PENDING, order.getId(), null)
+                : failed(processing, unwrap(failure))));
+        return processing;
+    }
+
+    // 查询下单句柄；只能查看自己的下单请求
+    public OrderPlacementDto getPlacement(User user, String handle) {
+        OrderPlacementDto placement = placements.getIfPresent(handle);
+        if (placement == null || !placement.getUserId().equals(user.getId())) {
+            throw new ResourceNotFoundException("Order placement not found");
+        }
+        return placement;
+    }
+
+    private void place(OrderPlacementDto queued, User user, String idempotencyKey) {
+        placements.put(queued.getHandle(), queued.withStatus(OrderPlacementDto.Status.PROCESSING, null, null));
+        OrderPlacementDto result;
+        try {
+            Long orderId = placeOrder(user, idempotencyKey).getId();
+            result = queued.withStatus(OrderPlacementDto.Status.PENDING, orderId, null);
+        } catch (RuntimeException ex) {
+            result = failed(queued, ex);
+        }
+        placements.put(queued.getHandle(), result);
+    }
+
+    // 后台线程没有调用方在等，批处理超时后继续等到结账结束
+    private Order placeOrder(User user, String idempotencyKey) {
+        try {
+            return orderIdempotencyService.placeOrder(user, idempotencyKey).order();
+        } catch (CheckoutPendingException ex) {
+            try {
+                return ex.getCheckout().join();
+            } catch (CompletionException failure) {
+                throw unwrap(failure);
+            }
+        }
+    }
+
+    private static OrderPlacementDto failed(OrderPlacementDto placement, RuntimeException ex) {
+        if (ex instanceof PessimisticLockingFailureException || ex instanceof QueryTimeoutException) {
+            return placement.withStatus(OrderPlacementDto.Status.FAILED, null, "Checkout is busy, please retry");
+        }
+        log.info("Async order placement {} failed: {}", placement.getHandle(), ex.getMessage());
+        return placement.withStatus(OrderPlacementDto.Status.FAILED, null, ex.getMessage());
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+}
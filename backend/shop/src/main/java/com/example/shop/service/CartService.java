@@ -8,7 +8,10 @@ import com.example.shop.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -19,14 +22,17 @@ public class CartService {
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductService productService;
+    private final StockHoldService stockHoldService;
 
     @Autowired
     public CartService(CartRepository cartRepository,
                        CartItemRepository cartItemRepository,
-                       ProductService productService) {
+                       ProductService productService,
+                       StockHoldService stockHoldService) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productService = productService;
+        this.stockHoldService = stockHoldService;
     }
 
     // 获取用户的购物车
@@ -40,9 +46,20 @@ public class CartService {
                 });
     }
 
-    // 获取购物车中的所有购物车项
+    // 获取购物车中的所有购物车项（连同商品一次查出）
     public List<CartItem> getCartItems(Cart cart) {
-        return cartItemRepository.findByCart(cart);
+        return cartItemRepository.findByCartWithProduct(cart);
+    }
+
+    // 用户购物车是否非空（不创建购物车，也不加载购物车项）
+    public boolean hasItems(User user) {
+        return cartItemRepository.existsByCartUserId(user.getId());
+    }
+
+    // 一次查出多个用户的购物车项（连同商品），按用户 id 分组，组内按商品 id 排序
+    public Map<Long, List<CartItem>> getCartItemsByUserIds(Collection<Long> userIds) {
+        return cartItemRepository.findByCartUserIdInWithProduct(userIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getCart().getUser().getId()));
     }
 
     // 添加商品到购物车
@@ -52,7 +69,8 @@ public class CartService {
         }
 
         Cart cart = getCartByUser(user);
-        Product product = productService.getProductById(productId);
+        // 商品从详情缓存中读取，加购不查 products 表；下单时会锁行重新校验库存
+        Product product = productService.getProductDetail(productId).toProduct();
         
         // 直接使用cartItemRepository查找已存在的商品
         CartItem existingItem = cartItemRepository.findByCartAndProduct(cart, product)
@@ -61,21 +79,29 @@ public class CartService {
         if (existingItem != null) {
             // 如果已存在，更新数量
             int newQuantity = existingItem.getQuantity() + quantity;
-            if (product.getStock() != null && newQuantity > product.getStock()) {
+            if (stockHoldService.isActive(product)) {
+                // 预留模式：追加的数量直接从库存中扣出
+                stockHoldService.hold(existingItem, newQuantity);
+            } else if (product.getStock() != null && newQuantity > product.getStock()) {
                 throw new RuntimeException("Insufficient stock: " + product.getName());
             }
             existingItem.setQuantity(newQuantity);
             return cartItemRepository.save(existingItem);
         } else {
             // 如果不存在，创建新的购物车项
-            if (product.getStock() != null && quantity > product.getStock()) {
+            boolean holdStock = stockHoldService.isActive(product);
+            if (!holdStock && product.getStock() != null && quantity > product.getStock()) {
                 throw new RuntimeException("Insufficient stock: " + product.getName());
             }
             CartItem newItem = new CartItem();
             newItem.setCart(cart);
             newItem.setProduct(product);
             newItem.setQuantity(quantity);
-            return cartItemRepository.save(newItem);
+            newItem = cartItemRepository.save(newItem);
+            if (holdStock) {
+                stockHoldService.hold(newItem, quantity);
+            }
+            return newItem;
         }
     }
 
@@ -100,7 +126,9 @@ public class CartService {
 
         // 更新数量
         Product product = cartItem.getProduct();
-        if (product.getStock() != null && quantity > product.getStock()) {
+        if (stockHoldService.isActive(product)) {
+            stockHoldService.hold(cartItem, quantity);
+        } else if (product.getStock() != null && quantity > product.getStock()) {
             throw new RuntimeException("Insufficient stock: " + product.getName());
         }
         cartItem.setQuantity(quantity);
@@ -117,13 +145,28 @@ public class CartService {
             throw new RuntimeException("Unauthorized access");
         }
 
+        // 删除前把预留的库存还回去
+        stockHoldService.release(List.of(cartItemId));
         cartItemRepository.delete(cartItem);
     }
 
     // 清空购物车
     public void clearCart(User user) {
-        Cart cart = getCartByUser(user);
-        List<CartItem> cartItems = cartItemRepository.findByCart(cart);
-        cartItemRepository.deleteAll(cartItems);
+        clearCart(getCartByUser(user));
+    }
+
+    // 清空购物车：一条批量 DELETE，不逐个加载购物车项；预留的库存先还回去
+    public void clearCart(Cart cart) {
+        if (stockHoldService.isEnabled()) {
+            stockHoldService.release(cartItemRepository.findIdsByCartId(cart.getId()));
+        }
+        cartItemRepository.deleteByCartId(cart.getId());
+    }
+
+    // 一次清空多个购物车（结账用：预留的库存已被订单消耗，不再归还）
+    public void clearCarts(Collection<Long> cartIds) {
+        if (!cartIds.isEmpty()) {
+            cartItemRepository.deleteByCartIdIn(cartIds);
+        }
     }
 }
@@ -0,0 +1,172 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.CursorPageDto;
+import com.example.shop.dto.ProductSummaryDto;
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optional read path for the public catalog: the listing and the first pages at the default page size
+ * are kept as pre-serialized JSON (plain and gzip) and written straight to the response.
+ * The snapshot is rebuilt on a background thread after product writes. It is only served while its ETag
+ * matches the current catalog version; until the rebuild completes, requests fall back to the live query.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    public record Body(byte[] json, byte[] gzip) {
+    }
+
+    public record Snapshot(String eTag, Instant lastModified, Body fullListing, Map<Long, Body> pages) {
+    }
+
+    private final ProductService productService;
+    private final ProductRepository productRepository;
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxPages;
+    private final long fullListingMaxProducts;
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    public CatalogSnapshotService(ProductService productService,
+                                  ProductRepository productRepository,
+                                  CatalogVersion catalogVersion,
+                                  ObjectMapper objectMapper,
+                                  @Value("${shop.catalog.snapshot.enabled:false}") boolean enabled,
+                                  @Value("${shop.catalog.snapshot.max-pages:50}") int maxPages,
+                                  @Value("${shop.catalog.snapshot.full-listing-max-products:5000}") long fullListingMaxProducts) {
+        this.productService = productService;
+        this.productRepository = productRepository;
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxPages = maxPages;
+        this.fullListingMaxProducts = fullListingMaxProducts;
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Optional<Snapshot> current() {
+        return enabled ? Optional.ofNullable(snapshot) : Optional.empty();
+    }
+
+    /**
+     * Returns the pre-serialized body for a catalog request, if the snapshot covers it.
+     * {@code after}/{@code limit} follow the same conventions as {@code GET /api/products}.
+     */
+    public Optional<Body> find(Snapshot current, Long after, Integer limit) {
+        if (after == null && limit == null) {
+            return Optional.ofNullable(current.fullListing());
+        }
+        if (limit != null && limit != ProductService.DEFAULT_PAGE_SIZE) {
+            return Optional.empty();
+        }
+        long cursor = after == null ? 0L : Math.max(after, 0L);
+        return Optional.ofNullable(current.pages().get(cursor));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    @Order(200)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        requestRebuild();
+    }
+
+    public void requestRebuild() {
+        if (!enabled) {
+            return;
+        }
+        // 多次写入合并成一次重建：只有从 false 变为 true 的调用才需要提交任务
+        if (rebuildRequested.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                while (rebuildRequested.getAndSet(false)) {
+                    try {
+                        rebuildNow();
+                    } catch (RuntimeException ex) {
+                        log.warn("Catalog snapshot rebuild failed; keeping previous snapshot.", ex);
+                    }
+                }
+            });
+        }
+    }
+
+    public void rebuildNow() {
+        long startedAt = System.nanoTime();
+        // 先记录版本再读数据，保证快照内容不会比它的 ETag 更旧
+        CatalogVersion.Stamp version = catalogVersion.read();
+
+        Body fullListing = null;
+        if (productRepository.count() <= fullListingMaxProducts) {
+            fullListing = serialize(productService.getAllProducts());
+        }
+
+        Map<Long, Body> pages = new HashMap<>();
+        long cursor = 0L;
+        for (int i = 0; i < maxPages; i++) {
+            CursorPageDto<ProductSummaryDto> page = productService.getProductPage(cursor, ProductService.DEFAULT_PAGE_SIZE);
+            pages.put(cursor, serialize(page));
+            if (!page.isHasMore()) {
+                break;
+            }
+            cursor = Long.parseLong(page.getNextCursor());
+        }
+
+        snapshot = new Snapshot(version.eTag(), version.lastModified(), fullListing, Map.copyOf(pages));
+        log.debug("Catalog snapshot rebuilt: {} pages in {} ms.", pages.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private Body serialize(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new Body(json, compressed.toByteArray());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize catalog snapshot", ex);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
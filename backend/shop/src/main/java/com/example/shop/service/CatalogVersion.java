@@ -0,0 +1,134 @@
+package com.example.shop.service;
+
+import com.example.shop.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// 商品目录的版本，用于列表的条件 GET。版本存在 catalog_versions 表的几个分段里，由商品写入在同一事务中递增，
+// 所有实例对同一份数据得到同一个 ETag，重启也不变
+@Component
+public class CatalogVersion {
+
+    private static final String INSERT_SLOT_SQL = "INSERT INTO catalog_versions (slot, version, updated_at) "
+            + "VALUES (?, ?, LOCALTIMESTAMP) ON CONFLICT DO NOTHING";
+    private static final String BUMP_SQL =
+            "UPDATE catalog_versions SET version = version + 1, updated_at = LOCALTIMESTAMP WHERE slot = ?";
+    private static final String READ_SQL = "SELECT COALESCE(SUM(version), 0), MAX(updated_at) FROM catalog_versions";
+
+    public record Stamp(String eTag, Instant lastModified) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int slots;
+    // 最近一次读到的版本，用于发现其他实例的写入
+    private String lastRead;
+
+    public CatalogVersion(JdbcTemplate jdbcTemplate,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${shop.catalog.version.slots:16}") int slots) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.slots = Math.max(1, slots);
+    }
+
+    // 写入所在的事务提交前递增一次版本，与数据一起提交或回滚，版本不会先于数据可见；
+    // 放在提交前执行，分段行锁只在提交期间持有，且总在商品行锁之后获取
+    @EventListener
+    public void onProductWritten(ProductChangedEvent event) {
+        if (isRemoteInvalidation(event)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                bump();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogVersion.this);
+            }
+        });
+    }
+
+    // Runs after ProductCacheInvalidator so a new tag is never paired with a stale cached page
+    @Order(100)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (this) {
+            lastRead = null;
+        }
+    }
+
+    // 种子数据等不发事件的批量写入直接调用
+    public void bump() {
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        // 分段行在第一次写入时创建；并发插入冲突时对方的行已经存在，再递增一次
+        if (jdbcTemplate.update(BUMP_SQL, slot) == 0 && jdbcTemplate.update(INSERT_SLOT_SQL, slot, 1) == 0) {
+            jdbcTemplate.update(BUMP_SQL, slot);
+        }
+    }
+
+    // 每次请求读一次：只汇总几个分段行，不扫描商品表
+    public Stamp read() {
+        Stamp stamp = jdbcTemplate.queryForObject(READ_SQL, this::toStamp);
+        if (stamp == null) {
+            // 还没有任何写入：建一个版本为 0 的分段，让 Last-Modified 从此固定下来
+            jdbcTemplate.update(INSERT_SLOT_SQL, 0, 0);
+            stamp = jdbcTemplate.queryForObject(READ_SQL, this::toStamp);
+        }
+        boolean changedElsewhere;
+        synchronized (this) {
+            changedElsewhere = lastRead != null && !lastRead.equals(stamp.eTag());
+            lastRead = stamp.eTag();
+        }
+        if (changedElsewhere) {
+            // 其他实例写入了商品：先清掉本地缓存和快照，再返回新的版本
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, Set.of()));
+            synchronized (this) {
+                lastRead = stamp.eTag();
+            }
+        }
+        return stamp;
+    }
+
+    private Stamp toStamp(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp updatedAt = rs.getTimestamp(2);
+        if (updatedAt == null) {
+            return null;
+        }
+        Instant lastModified = updatedAt.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant();
+        return new Stamp("\"catalog-" + Long.toString(rs.getLong(1), 36) + "\"",
+                lastModified.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    // 上面发出的失效通知没有商品 id，它本身不是写入，不能再递增版本，否则各实例会互相触发
+    private static boolean isRemoteInvalidation(ProductChangedEvent event) {
+        return event.type() == ProductChangedEvent.Type.UPDATED && event.productIds().isEmpty();
+    }
+}
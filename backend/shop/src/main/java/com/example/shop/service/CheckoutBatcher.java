@@ -0,0 +1,197 @@
+package com.example.shop.service;
+
+import com.example.shop.exception.CheckoutPendingException;
+import com.example.shop.exception.ServiceUnavailableException;
+import com.example.shop.model.Order;
+import com.example.shop.model.User;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 结账的组提交：短时间窗口内的并发请求在一个事务里下单，分摊提交开销，每个调用方仍拿到自己的订单或失败。
+// 调用方最多等待 shop.checkout.batching.timeout-ms，超时后结账继续进行，调用方拿到携带最终结果的 CheckoutPendingException。
+// 整批回滚时每个请求交回各自调用方线程单独结账，分发线程直接处理下一批；意外错误只让本批失败
+@Slf4j
+@Service
+public class CheckoutBatcher {
+
+    private record PendingCheckout(OrderService.CheckoutRequest request, CompletableFuture<Order> result) {
+    }
+
+    // 整批回滚后交回调用方线程单独结账的信号，不是真正的失败
+    private static final class PlaceAlone extends RuntimeException {
+        PlaceAlone() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final PlaceAlone PLACE_ALONE = new PlaceAlone();
+
+    private final OrderService orderService;
+    private final ProductContentionPolicy contentionPolicy;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<PendingCheckout> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSizes;
+    private final Thread dispatcher;
+
+    @Autowired
+    public CheckoutBatcher(OrderService orderService,
+                           ProductContentionPolicy contentionPolicy,
+                           MeterRegistry meterRegistry,
+                           @Value("${shop.checkout.batching.enabled:false}") boolean enabled,
+                           @Value("${shop.checkout.batching.max-batch-size:32}") int maxBatchSize,
+                           @Value("${shop.checkout.batching.window-ms:5}") long windowMillis,
+                           @Value("${shop.checkout.batching.timeout-ms:10000}") long timeoutMillis) {
+        this.orderService = orderService;
+        this.contentionPolicy = contentionPolicy;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.batchSizes = DistributionSummary.builder("shop.checkout.batch.size")
+                .description("Checkouts committed together in one transaction")
+                .register(meterRegistry);
+        this.dispatcher = new Thread(this::dispatch, "checkout-batcher");
+        this.dispatcher.setDaemon(true);
+        if (enabled) {
+            this.dispatcher.start();
+        }
+    }
+
+    // 结账；开启批处理时与并发的其他结账合并到同一个事务提交
+    public Order checkout(User user, String idempotencyKey) {
+        if (!enabled) {
+            return placeWithRetry(new OrderService.CheckoutRequest(user, idempotencyKey));
+        }
+        OrderService.CheckoutRequest request = new OrderService.CheckoutRequest(user, idempotencyKey);
+        CompletableFuture<Order> result = new CompletableFuture<>();
+        queue.add(new PendingCheckout(request, result));
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // 不放弃请求：它仍会被结账，调用方拿到最终结果的句柄，避免订单已提交却返回 503、重试又撞上空购物车
+            log.warn("Checkout of user {} not placed within {} ms, still in progress", user.getId(), timeoutMillis);
+            throw new CheckoutPendingException(result.exceptionallyCompose(failure -> {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                // 调用方线程已经返回，整批回滚后改在公共线程池里单独结账
+                return cause instanceof PlaceAlone
+                        ? CompletableFuture.supplyAsync(() -> placeWithRetry(request))
+                        : CompletableFuture.failedFuture(cause);
+            }));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(new ServiceUnavailableException("Checkout was interrupted, please retry"));
+            return awaitDone(request, result);
+        } catch (ExecutionException ex) {
+            return rethrow(request, ex);
+        }
+    }
+
+    // 结果已确定（可能是刚中断时写入的失败，也可能是同时完成的订单）
+    private Order awaitDone(OrderService.CheckoutRequest request, CompletableFuture<Order> result) {
+        try {
+            return result.getNow(null);
+        } catch (CompletionException ex) {
+            return rethrow(request, ex);
+        }
+    }
+
+    private Order rethrow(OrderService.CheckoutRequest request, Exception ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof PlaceAlone) {
+            return placeWithRetry(request);
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingCheckout> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingCheckout next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                place(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                // 正在关闭：不再结账，已收集和仍在排队的请求都直接失败，避免调用方一直等待
+                queue.drainTo(batch);
+                fail(batch, new ServiceUnavailableException("Checkout is shutting down, please retry"));
+            } catch (Throwable ex) {
+                // 意外错误只让本批失败，分发线程继续处理后续请求
+                log.error("Checkout batch of {} failed", batch.size(), ex);
+                fail(batch, new ServiceUnavailableException("Checkout failed, please retry"));
+            }
+        }
+    }
+
+    private void place(List<PendingCheckout> batch) {
+        // 调用方线程被中断而放弃的请求不再结账
+        batch.removeIf(pending -> pending.result().isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+        List<OrderService.CheckoutResult> results;
+        try {
+            results = orderService.createOrders(batch.stream().map(PendingCheckout::request).toList());
+        } catch (RuntimeException ex) {
+            // 整批回滚（如热点商品预留失败、锁超时）：交回各调用方线程单独结账，每个请求拿到自己的结果
+            log.info("Checkout batch of {} rolled back, placing orders one by one: {}", batch.size(), ex.getMessage());
+            fail(batch, PLACE_ALONE);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            OrderService.CheckoutResult result = results.get(i);
+            if (result.failure() != null) {
+                batch.get(i).result().completeExceptionally(result.failure());
+            } else {
+                batch.get(i).result().complete(result.order());
+            }
+        }
+    }
+
+    private static void fail(List<PendingCheckout> batch, RuntimeException failure) {
+        batch.forEach(pending -> pending.result().completeExceptionally(failure));
+    }
+
+    // 锁超时、死锁等并发冲突按重试策略重新结账；涉及哪些商品由异常携带
+    private Order placeWithRetry(OrderService.CheckoutRequest request) {
+        return contentionPolicy.execute(ProductContentionPolicy.CHECKOUT, List.of(),
+                () -> orderService.createOrder(request.user(), request.idempotencyKey()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.interrupt();
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.shop.service;
+
+import com.example.shop.event.ProductChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 热点商品（秒杀）的可选库存预留引擎：可售库存放在分段的内存计数器里，结账在一个分段上 CAS 扣减，
+// 不再排队等商品行锁。这样预留的订单项带 stock_pending = true，作为持久化日志；定时刷写按商品汇总后
+// 在一个事务里扣减 products 并清除标记。启动时先刷写日志再加载计数器，崩溃前未写回的库存不会被重复售出。
+// 引擎独占这些商品的库存，只适用于单实例部署
+@Component
+public class HotSkuReservationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(HotSkuReservationEngine.class);
+
+    private static final String SELECT_PENDING_SQL =
+            "SELECT id, product_id, quantity FROM order_items WHERE stock_pending = TRUE ORDER BY id LIMIT ?";
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock = stock - ?, version = version + 1, updated_at = LOCALTIMESTAMP WHERE id = ?";
+    private static final String MARK_FLUSHED_SQL = "UPDATE order_items SET stock_pending = FALSE WHERE id = ?";
+    private static final String SELECT_STOCK_SQL = "SELECT stock FROM products WHERE id = ?";
+    // 每个分段占 8 个 long（64 字节），避免相邻分段落在同一缓存行上互相争用
+    private static final int STRIPE_PADDING = 8;
+
+    private record FlushedChunk(int rows, Map<Long, Long> quantities) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Set<Long> configuredProductIds;
+    private final int stripeCount;
+    private final int flushBatchSize;
+    private final Map<Long, HotSku> skus = new ConcurrentHashMap<>();
+    // flush 与 resync 互斥：两者都要同时看数据库库存和未写回数量
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public HotSkuReservationEngine(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${shop.stock.hot-skus.enabled:false}") boolean enabled,
+                                   @Value("${shop.stock.hot-skus.product-ids:}") List<Long> configuredProductIds,
+                                   @Value("${shop.stock.hot-skus.stripes:16}") int stripeCount,
+                                   @Value("${shop.stock.hot-skus.flush-batch-size:1000}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.configuredProductIds = new LinkedHashSet<>(configuredProductIds);
+        this.stripeCount = Math.max(1, stripeCount);
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isHot(Long productId) {
+        return enabled && skus.containsKey(productId);
+    }
+
+    // 启动时先把上次未写回的扣减补到 products 表，再从数据库加载热点商品库存；
+    // 先于 StockHoldService.start 运行，让它知道哪些商品是热点
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE - 1)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int recovered = flush();
+        if (recovered > 0) {
+            log.info("Hot SKU reconciliation applied {} pending order items.", recovered);
+        }
+        configuredProductIds.forEach(this::track);
+    }
+
+    // 开始在内存中管理该商品的库存，计数器从数据库加载
+    public void track(Long productId) {
+        if (!enabled || skus.containsKey(productId)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Integer stock = loadStock(productId);
+            if (stock == null) {
+                log.warn("Hot SKU {} does not exist; ignoring.", productId);
+                return;
+            }
+            HotSku sku = new HotSku(productId);
+            sku.spread(stock);
+            sku.stockBase = stock;
+            if (skus.putIfAbsent(productId, sku) == null) {
+                sku.registerGauges();
+                log.info("Hot SKU {} tracked with {} units available.", productId, stock);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // 预留库存；在事务内时，事务未提交则归还，提交后保持待刷写直到下次 flush
+    public boolean reserve(Long productId, int quantity) {
+        HotSku sku = skus.get(productId);
+        if (sku == null) {
+            throw new IllegalStateException("Product " + productId + " is not a hot SKU");
+        }
+        if (!sku.tryReserve(quantity)) {
+            return false;
+        }
+        sku.unflushed.add(quantity);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        sku.release(quantity);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    public long available(Long productId) {
+        HotSku sku = skus.get(productId);
+        return sku == null ? -1 : sku.available();
+    }
+
+    public long unflushed(Long productId) {
+        HotSku sku = skus.get(productId);
+        return sku == null ? -1 : sku.unflushed.sum();
+    }
+
+    // 定期把已提交订单的扣减批量写回 products 表
+    @Scheduled(fixedDelayString = "${shop.stock.hot-skus.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    // 把已提交、待刷写的预留写回 products 表，返回处理的订单项数
+    public int flush() {
+        if (!enabled) {
+            return 0;
+        }
+        flushLock.lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // 管理员改了热点商品库存时，以数据库为准重新计算内存中的可用量
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        switch (event.type()) {
+            case UPDATED -> event.productIds().stream().filter(skus::containsKey).forEach(this::resync);
+            case DELETED -> event.productIds().forEach(this::untrack);
+            default -> { }
+        }
+    }
+
+    private void resync(Long productId) {
+        flushLock.lock();
+        try {
+            flushLocked();
+            HotSku sku = skus.get(productId);
+            Integer stock = loadStock(productId);
+            if (sku == null || stock == null) {
+                return;
+            }
+            // 只把数据库库存相对 stockBase 的变化量加到内存可用量上，不读 unflushed：
+            // 进行中的预留无论是否已计入 unflushed 都已从分段里扣掉，不会被算回来重复售卖
+            synchronized (sku) {
+                sku.spread(Math.max(0, sku.drain() + stock - sku.stockBase));
+                sku.stockBase = stock;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void untrack(Long productId) {
+        HotSku sku = skus.remove(productId);
+        if (sku != null) {
+            sku.meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    private int flushLocked() {
+        int applied = 0;
+        Set<Long> touched = new HashSet<>();
+        FlushedChunk chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> flushChunk());
+            applied += chunk.rows();
+            chunk.quantities().forEach((productId, quantity) -> {
+                touched.add(productId);
+                HotSku sku = skus.get(productId);
+                if (sku != null) {
+                    sku.unflushed.add(-quantity);
+                    sku.stockBase -= quantity;
+                }
+            });
+        } while (chunk.rows() == flushBatchSize);
+
+        if (!touched.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(touched));
+        }
+        return applied;
+    }
+
+    private FlushedChunk flushChunk() {
+        List<Long> itemIds = new ArrayList<>();
+        Map<Long, Long> quantities = new HashMap<>();
+        jdbcTemplate.query(SELECT_PENDING_SQL, rs -> {
+            itemIds.add(rs.getLong("id"));
+            quantities.merge(rs.getLong("product_id"), rs.getLong("quantity"), Long::sum);
+        }, flushBatchSize);
+        if (itemIds.isEmpty()) {
+            return new FlushedChunk(0, Map.of());
+        }
+
+        List<Object[]> decrements = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> decrements.add(new Object[] {quantity, productId}));
+        jdbcTemplate.batchUpdate(DECREMENT_SQL, decrements);
+        jdbcTemplate.batchUpdate(MARK_FLUSHED_SQL, itemIds.stream().map(id -> new Object[] {id}).toList());
+        return new FlushedChunk(itemIds.size(), quantities);
+    }
+
+    private Integer loadStock(Long productId) {
+        try {
+            return jdbcTemplate.queryForObject(SELECT_STOCK_SQL, Integer.class, productId);
+        } catch (EmptyResultDataAccessException ex) {
+            return null;
+        }
+    }
+
+    // 单个热点商品的内存状态：分段存放的可售数量，以及已预留但尚未写回 products 表的数量
+    private final class HotSku {
+
+        private final Long productId;
+        private final AtomicLongArray stripes = new AtomicLongArray(stripeCount * STRIPE_PADDING);
+        private final LongAdder unflushed = new LongAdder();
+        // 内存可用量所对应的 products.stock；只在持有 flushLock 时读写
+        private long stockBase;
+        private final List<Meter> meters = new ArrayList<>();
+
+        HotSku(Long productId) {
+            this.productId = productId;
+        }
+
+        boolean tryReserve(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripeCount);
+            for (int i = 0; i < stripeCount; i++) {
+                if (tryTake((start + i) % stripeCount, quantity)) {
+                    return true;
+                }
+            }
+            return reserveSlow(quantity);
+        }
+
+        void release(int quantity) {
+            stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripeCount) * STRIPE_PADDING, quantity);
+            unflushed.add(-quantity);
+        }
+
+        long available() {
+            long total = 0;
+            for (int i = 0; i < stripeCount; i++) {
+                total += stripes.get(i * STRIPE_PADDING);
+            }
+            return total;
+        }
+
+        // 各分段单独都不够、但合计足够时，加锁把余量收拢后再分配
+        private synchronized boolean reserveSlow(int quantity) {
+            long total = drain();
+            boolean reserved = total >= quantity;
+            spread(reserved ? total - quantity : total);
+            return reserved;
+        }
+
+        private boolean tryTake(int stripe, int quantity) {
+            int index = stripe * STRIPE_PADDING;
+            while (true) {
+                long current = stripes.get(index);
+                if (current < quantity) {
+                    return false;
+                }
+                if (stripes.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        long drain() {
+            long total = 0;
+            for (int i = 0; i < stripeCount; i++) {
+                total += stripes.getAndSet(i * STRIPE_PADDING, 0);
+            }
+            return total;
+        }
+
+        void spread(long total) {
+            long share = total / stripeCount;
+            long remainder = total % stripeCount;
+            for (int i = 0; i < stripeCount; i++) {
+                stripes.addAndGet(i * STRIPE_PADDING, share + (i < remainder ? 1 : 0));
+            }
+        }
+
+        void registerGauges() {
+            String tag = String.valueOf(productId);
+            meters.add(Gauge.builder("shop.stock.hot.available", this, HotSku::available)
+                    .description("Units a hot SKU can still sell, held in memory")
+                    .tag("product", tag)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("shop.stock.hot.unflushed", unflushed, LongAdder::sum)
+                    .description("Reserved units not yet written back to the products table")
+                    .tag("product", tag)
+                    .register(meterRegistry));
+        }
+    }
+}
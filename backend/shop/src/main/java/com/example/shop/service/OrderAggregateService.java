@@ -0,0 +1,279 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.OrderAggregatesDto;
+import com.example.shop.dto.SalesBucketDto;
+import com.example.shop.model.Order;
+import com.example.shop.model.OrderSummary;
+import com.example.shop.util.RollingTimeBuckets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 后台看板的滚动订单统计：各状态订单数，以及按分钟/小时/天的订单数、销售额和件数，放在滚动时间桶里，
+// 轮询开销与订单总量无关。OrderService 上报下单、状态变化和取消，提交后才生效，回滚的结账不会被计入；
+// 取消的订单从它下单时所在的桶里扣回。启动时从 order_summaries 表重建。
+// 重建在一个可重复读快照里读表，期间结账照常提交：重建中上报的变化先缓冲，重建后回放快照里还没有的部分，
+// 订单既不会丢也不会重复计数。所有计数器由本对象的锁保护。
+// 时间桶按服务器本地日历划分；计数器是单实例的，只包含本实例重建以来写入的订单
+@Component
+public class OrderAggregateService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAggregateService.class);
+
+    private static final String COUNT_BY_STATUS_SQL =
+            "SELECT status, COUNT(*) AS orders FROM order_summaries GROUP BY status";
+    private static final String SELECT_RECENT_SQL = "SELECT created_at, total_price, item_count FROM order_summaries "
+            + "WHERE created_at >= :since AND status <> :cancelled";
+    private static final String SELECT_STATUS_SQL = "SELECT order_id, status FROM order_summaries WHERE order_id IN (:ids)";
+
+    // 一次变更：from 为空表示新下单，否则为状态从 from 变为 to
+    private record Delta(OrderSummary order, Order.OrderStatus from, Order.OrderStatus to) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final Object rebuildLock = new Object();
+    private final int minuteBuckets;
+    private final int hourBuckets;
+    private final int dayBuckets;
+    private Map<Order.OrderStatus, Long> statusCounts;
+    private RollingTimeBuckets minutes;
+    private RollingTimeBuckets hours;
+    private RollingTimeBuckets days;
+    // 重建期间提交的变更，重建完成后补上；不在重建时为 null
+    private List<Delta> pending;
+
+    public OrderAggregateService(NamedParameterJdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${shop.orders.aggregates.minute-buckets:60}") int minuteBuckets,
+                                 @Value("${shop.orders.aggregates.hour-buckets:24}") int hourBuckets,
+                                 @Value("${shop.orders.aggregates.day-buckets:30}") int dayBuckets) {
+        this.jdbcTemplate = jdbcTemplate;
+        // 重建时的所有查询读同一个快照
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+        this.dayBuckets = dayBuckets;
+        this.statusCounts = emptyStatusCounts();
+        this.minutes = new RollingTimeBuckets(Duration.ofMinutes(1).toMillis(), minuteBuckets);
+        this.hours = new RollingTimeBuckets(Duration.ofHours(1).toMillis(), hourBuckets);
+        this.days = new RollingTimeBuckets(Duration.ofDays(1).toMillis(), dayBuckets);
+    }
+
+    // 新订单（在下单事务中调用，提交后计入）
+    public void recordPlaced(Collection<OrderSummary> orders) {
+        List<Delta> placed = orders.stream().map(order -> new Delta(order, null, order.getStatus())).toList();
+        afterCommit(() -> apply(placed));
+    }
+
+    // 订单状态变更；转为 CANCELLED 时从下单所在的时间桶中扣除
+    public void recordStatusChange(Collection<OrderSummary> orders, Order.OrderStatus from, Order.OrderStatus to) {
+        if (from == to) {
+            return;
+        }
+        List<Delta> changed = orders.stream().map(order -> new Delta(order, from, to)).toList();
+        afterCommit(() -> apply(changed));
+    }
+
+    public OrderAggregatesDto getAggregates() {
+        return getAggregates(LocalDateTime.now());
+    }
+
+    // 只读取固定数量的时间桶，与订单量无关
+    public synchronized OrderAggregatesDto getAggregates(LocalDateTime now) {
+        Map<Order.OrderStatus, Long> ordersByStatus = new EnumMap<>(statusCounts);
+
+        long nowMillis = toMillis(now);
+        List<SalesBucketDto> perHour = toDtos(hours.snapshot(nowMillis));
+        long orders = perHour.stream().mapToLong(SalesBucketDto::getOrders).sum();
+        long items = perHour.stream().mapToLong(SalesBucketDto::getItems).sum();
+        BigDecimal revenue = perHour.stream().map(SalesBucketDto::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal averageOrderValue = orders == 0
+                ? BigDecimal.ZERO.setScale(2)
+                : revenue.divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP);
+        BigDecimal averageItemsPerOrder = orders == 0
+                ? BigDecimal.ZERO.setScale(2)
+                : BigDecimal.valueOf(items).divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP);
+
+        return new OrderAggregatesDto(now, ordersByStatus, toDtos(minutes.snapshot(nowMillis)), perHour,
+                toDtos(days.snapshot(nowMillis)), averageOrderValue, averageItemsPerOrder);
+    }
+
+    // 从 order_summaries 表重建全部计数器：状态计数用 GROUP BY，时间桶取日窗口内的订单；在汇总表回填之后执行
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(Ordered.LOWEST_PRECEDENCE)
+    public void rebuild() {
+        rebuild(LocalDateTime.now());
+    }
+
+    public void rebuild(LocalDateTime now) {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                snapshotTemplate.executeWithoutResult(status -> rebuildFromSnapshot(now));
+            } finally {
+                // 重建失败时旧计数未被替换，直接补上期间的变更
+                synchronized (this) {
+                    if (pending != null) {
+                        pending.forEach(this::applyDelta);
+                        pending = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void rebuildFromSnapshot(LocalDateTime now) {
+        Map<Order.OrderStatus, Long> counts = emptyStatusCounts();
+        jdbcTemplate.query(COUNT_BY_STATUS_SQL, rs -> {
+            counts.put(Order.OrderStatus.valueOf(rs.getString("status")), rs.getLong("orders"));
+        });
+        RollingTimeBuckets newMinutes = new RollingTimeBuckets(Duration.ofMinutes(1).toMillis(), minuteBuckets);
+        RollingTimeBuckets newHours = new RollingTimeBuckets(Duration.ofHours(1).toMillis(), hourBuckets);
+        RollingTimeBuckets newDays = new RollingTimeBuckets(Duration.ofDays(1).toMillis(), dayBuckets);
+        LocalDateTime since = now.toLocalDate().minusDays(dayBuckets - 1L).atStartOfDay();
+        long[] recent = {0};
+        jdbcTemplate.query(SELECT_RECENT_SQL, new MapSqlParameterSource()
+                .addValue("since", Timestamp.valueOf(since))
+                .addValue("cancelled", Order.OrderStatus.CANCELLED.name()), rs -> {
+            long millis = toMillis(rs.getTimestamp("created_at").toLocalDateTime());
+            long amount = cents(rs.getBigDecimal("total_price"));
+            int units = rs.getInt("item_count");
+            newMinutes.add(millis, 1, amount, units);
+            newHours.add(millis, 1, amount, units);
+            newDays.add(millis, 1, amount, units);
+            recent[0]++;
+        });
+
+        synchronized (this) {
+            statusCounts = counts;
+            minutes = newMinutes;
+            hours = newHours;
+            days = newDays;
+            replay(pending, snapshotStatuses(pending));
+            pending = null;
+        }
+        log.info("Order aggregates rebuilt: {} orders since {}.", recent[0], since);
+    }
+
+    // 快照中这些订单的状态（快照里没有的订单不在结果中）；与重建查询在同一个事务里读取
+    private Map<Long, Order.OrderStatus> snapshotStatuses(List<Delta> deltas) {
+        Map<Long, Order.OrderStatus> statuses = new HashMap<>();
+        List<Long> ids = deltas.stream().map(delta -> delta.order().getOrderId()).distinct().toList();
+        if (!ids.isEmpty()) {
+            jdbcTemplate.query(SELECT_STATUS_SQL, new MapSqlParameterSource("ids", ids), rs -> {
+                statuses.put(rs.getLong("order_id"), Order.OrderStatus.valueOf(rs.getString("status")));
+            });
+        }
+        return statuses;
+    }
+
+    // 按发生顺序补上重建期间的变更；快照已经包含的（订单已存在，或已是变更后的状态）跳过
+    private void replay(List<Delta> deltas, Map<Long, Order.OrderStatus> statuses) {
+        for (Delta delta : deltas) {
+            Long orderId = delta.order().getOrderId();
+            Order.OrderStatus current = statuses.get(orderId);
+            boolean seen = delta.from() == null ? current != null : current != delta.from();
+            if (!seen) {
+                applyDelta(delta);
+                statuses.put(orderId, delta.to());
+            }
+        }
+    }
+
+    private synchronized void apply(List<Delta> deltas) {
+        if (pending != null) {
+            pending.addAll(deltas);
+            return;
+        }
+        deltas.forEach(this::applyDelta);
+    }
+
+    private void applyDelta(Delta delta) {
+        if (delta.from() == null) {
+            statusCounts.merge(delta.to(), 1L, Long::sum);
+            addSales(delta.order(), 1);
+            return;
+        }
+        statusCounts.merge(delta.from(), -1L, Long::sum);
+        statusCounts.merge(delta.to(), 1L, Long::sum);
+        if (delta.to() == Order.OrderStatus.CANCELLED) {
+            addSales(delta.order(), -1);
+        }
+    }
+
+    private void addSales(OrderSummary order, int sign) {
+        long millis = toMillis(order.getCreatedAt());
+        long amount = sign * cents(order.getTotalPrice());
+        long units = sign * (long) order.getItemCount();
+        minutes.add(millis, sign, amount, units);
+        hours.add(millis, sign, amount, units);
+        days.add(millis, sign, amount, units);
+    }
+
+    private static Map<Order.OrderStatus, Long> emptyStatusCounts() {
+        Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        return counts;
+    }
+
+    private static List<SalesBucketDto> toDtos(List<RollingTimeBuckets.Bucket> buckets) {
+        return buckets.stream()
+                .map(bucket -> new SalesBucketDto(
+                        LocalDateTime.ofEpochSecond(Math.floorDiv(bucket.startMillis(), 1000L), 0, ZoneOffset.UTC),
+                        bucket.count(), BigDecimal.valueOf(bucket.amount(), 2), bucket.units()))
+                .toList();
+    }
+
+    // 按本地时间换算成毫秒，使时间桶与本地的整点、零点对齐
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // 有事务时在提交后执行，事务回滚则不计入
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
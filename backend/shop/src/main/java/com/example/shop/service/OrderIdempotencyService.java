@@ -0,0 +1,128 @@
+package com.example.shop.service;
+
+import com.example.shop.exception.BadRequestException;
+import com.example.shop.exception.CheckoutPendingException;
+import com.example.shop.model.Order;
+import com.example.shop.model.User;
+import com.example.shop.repository.OrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Deduplicates order placement by the client's {@code Idempotency-Key}.
+ * Concurrent duplicates wait on the in-flight checkout; later replays are answered from a
+ * bounded, expiring store, falling back to the key persisted on the order itself.
+ */
+@Service
+public class OrderIdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    public record Placement(Order order, boolean replayed) {
+    }
+
+    private final CheckoutBatcher checkoutBatcher;
+    private final OrderRepository orderRepository;
+    private final Cache<String, CompletableFuture<Order>> placements;
+    private final Counter replays;
+
+    @Autowired
+    public OrderIdempotencyService(CheckoutBatcher checkoutBatcher,
+                                   OrderRepository orderRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${shop.orders.idempotency.max-entries:10000}") long maxEntries,
+                                   @Value("${shop.orders.idempotency.ttl-minutes:1440}") long ttlMinutes) {
+        this.checkoutBatcher = checkoutBatcher;
+        this.orderRepository = orderRepository;
+        this.placements = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+        this.replays = Counter.builder("shop.orders.idempotent.replays")
+                .description("Order placements answered from an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    // 下单；同一用户同一幂等键只会真正执行一次结账
+    public Placement placeOrder(User user, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return new Placement(checkoutBatcher.checkout(user, null), false);
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String storeKey = user.getId() + ":" + idempotencyKey;
+        CompletableFuture<Order> placement = new CompletableFuture<>();
+        CompletableFuture<Order> inFlight = placements.asMap().putIfAbsent(storeKey, placement);
+        if (inFlight != null) {
+            // 重复请求：等待首个请求的结果，不再访问库存和购物车
+            Order order = await(inFlight);
+            replays.increment();
+            return new Placement(order, true);
+        }
+
+        try {
+            Optional<Order> existing = orderRepository.findByUserIdAndIdempotencyKey(user.getId(), idempotencyKey);
+            if (existing.isPresent()) {
+                // 内存记录已过期或服务重启过，以订单上保存的幂等键为准
+                placement.complete(existing.get());
+                replays.increment();
+                return new Placement(existing.get(), true);
+            }
+            Placement result = createOrReplay(user, idempotencyKey);
+            placement.complete(result.order());
+            return result;
+        } catch (CheckoutPendingException ex) {
+            // 结账仍在进行：同一个键的重试等待它的结果，失败时才放开重新结账
+            ex.getCheckout().whenComplete((order, failure) -> {
+                if (failure == null) {
+                    placement.complete(order);
+                } else {
+                    placements.asMap().remove(storeKey, placement);
+                    placement.completeExceptionally(failure);
+                }
+            });
+            throw ex;
+        } catch (RuntimeException ex) {
+            // 失败不记录，客户端用同一个键重试时会重新结账
+            placements.asMap().remove(storeKey, placement);
+            placement.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private Placement createOrReplay(User user, String idempotencyKey) {
+        try {
+            return new Placement(checkoutBatcher.checkout(user, idempotencyKey), false);
+        } catch (DataIntegrityViolationException ex) {
+            // 另一个实例已用同一个键下单（唯一约束冲突），本次结账已整体回滚
+            Order order = orderRepository.findByUserIdAndIdempotencyKey(user.getId(), idempotencyKey)
+                    .orElseThrow(() -> ex);
+            replays.increment();
+            return new Placement(order, true);
+        }
+    }
+
+    private static Order await(CompletableFuture<Order> placement) {
+        try {
+            return placement.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -2,102 +2,399 @@ package com.example.shop.service;
 
 import com.example.shop.model.*;
 import com.example.shop.repository.*;
+import com.example.shop.dto.CursorPageDto;
 import com.example.shop.dto.OrderDto;
+import com.example.shop.dto.OrderFilter;
 import com.example.shop.dto.OrderItemDto;
+import com.example.shop.dto.OrderSummaryDto;
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.exception.BadRequestException;
+import com.example.shop.exception.ProductContentionException;
 import com.example.shop.exception.ResourceNotFoundException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock = stock - ?, version = version + 1, updated_at = LOCALTIMESTAMP "
+            + "WHERE id = ? AND stock >= ?";
+    private static final String SELECT_EXPIRED_ORDERS_SQL = "SELECT o.id FROM orders o "
+            + "WHERE o.status = :pending AND o.created_at < :cutoff "
+            + "AND NOT EXISTS (SELECT 1 FROM order_items oi WHERE oi.order_id = o.id AND oi.stock_pending = TRUE) "
+            + "ORDER BY o.created_at, o.id LIMIT :limit FOR UPDATE";
+    private static final String CANCEL_ORDERS_SQL =
+            "UPDATE orders SET status = :cancelled, updated_at = LOCALTIMESTAMP WHERE id IN (:ids)";
+    private static final String SUM_ORDER_ITEMS_SQL = "SELECT product_id, SUM(quantity) AS quantity FROM order_items "
+            + "WHERE order_id IN (:ids) GROUP BY product_id ORDER BY product_id";
+    private static final String RESTORE_STOCK_SQL = "UPDATE products SET stock = stock + :quantity, "
+            + "version = version + 1, updated_at = LOCALTIMESTAMP WHERE id = :productId";
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // 每条订单项查询最多带的订单 id 数，避免 IN 列表过长
+    private static final int ITEM_QUERY_BATCH_SIZE = 1000;
+    private static final String INSERT_ORDER_ITEM_SQL = "INSERT INTO order_items "
+            + "(order_id, product_id, quantity, unit_price, stock_pending, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // 一个结账请求：下单用户和可选的幂等键
+    public record CheckoutRequest(User user, String idempotencyKey) {
+    }
+
+    // 批量结账中单个请求的结果：成功时为订单，失败时为对应异常
+    public record CheckoutResult(Order order, RuntimeException failure) {
+    }
+
+    private record PlacedOrder(Order order, List<CartItem> lines) {
+    }
+
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderSummaryProjector orderSummaryProjector;
+    private final OrderAggregateService orderAggregateService;
     private final CartService cartService;
     private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotSkuReservationEngine hotSkuEngine;
+    private final StockHoldService stockHoldService;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final EntityManager entityManager;
+    private final int stockLockTimeoutMillis;
+    private final int adminCountCap;
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
+                        OrderSummaryRepository orderSummaryRepository,
+                        OrderSummaryProjector orderSummaryProjector,
+                        OrderAggregateService orderAggregateService,
                         CartService cartService,
                         OrderItemRepository orderItemRepository,
-                        ProductRepository productRepository) {
+                        ProductRepository productRepository,
+                        ApplicationEventPublisher eventPublisher,
+                        HotSkuReservationEngine hotSkuEngine,
+                        StockHoldService stockHoldService,
+                        MeterRegistry meterRegistry,
+                        JdbcTemplate jdbcTemplate,
+                        NamedParameterJdbcTemplate namedJdbcTemplate,
+                        EntityManager entityManager,
+                        @Value("${shop.checkout.lock-timeout-ms:3000}") int stockLockTimeoutMillis,
+                        @Value("${shop.orders.admin.count-cap:10000}") int adminCountCap) {
         this.orderRepository = orderRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.orderSummaryProjector = orderSummaryProjector;
+        this.orderAggregateService = orderAggregateService;
         this.cartService = cartService;
         this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.hotSkuEngine = hotSkuEngine;
+        this.stockHoldService = stockHoldService;
+        this.meterRegistry = meterRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.entityManager = entityManager;
+        this.stockLockTimeoutMillis = stockLockTimeoutMillis;
+        this.adminCountCap = adminCountCap;
     }
 
     // 创建订单
     @Transactional
     public Order createOrder(User user) {
-        // 获取用户的购物车
-        Cart cart = cartService.getCartByUser(user);
-        List<CartItem> cartItems = cartService.getCartItems(cart);
-
-        if (cartItems.isEmpty()) {
-            throw new RuntimeException("Cart is empty");
-        }
-
-        // 创建订单
-        Order order = new Order();
-        order.setUser(user);
-        order.setStatus(Order.OrderStatus.PENDING);
-        
-        // 计算总价
-        BigDecimal totalPrice = BigDecimal.ZERO;
-        for (CartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-            int currentStock = product.getStock() == null ? 0 : product.getStock();
-            if (currentStock < cartItem.getQuantity()) {
-                throw new RuntimeException("Insufficient stock: " + product.getName());
+        return createOrder(user, null);
+    }
+
+    // 创建订单，并把客户端的幂等键与订单一起保存
+    @Transactional
+    public Order createOrder(User user, String idempotencyKey) {
+        CheckoutResult result = createOrders(List.of(new CheckoutRequest(user, idempotencyKey))).get(0);
+        if (result.failure() != null) {
+            throw result.failure();
+        }
+        return result.order();
+    }
+
+    // 在一个事务中处理一组结账请求：所有商品行一次按 id 顺序加锁，库存扣减、订单项插入和购物车清空都批量执行。
+    // 购物车为空或库存不足只让对应请求失败；热点商品预留失败等其他异常会让整批回滚
+    @Transactional
+    public List<CheckoutResult> createOrders(List<CheckoutRequest> requests) {
+        // 一次查出所有用户的购物车项（连同商品），按商品 id 排序
+        Map<Long, List<CartItem>> cartItemsByUser = cartService.getCartItemsByUserIds(
+                requests.stream().map(request -> request.user().getId()).distinct().toList());
+
+        Set<Long> hotProductIds = new HashSet<>();
+        Set<Long> lockedProductIds = new TreeSet<>();
+        List<Long> lockedCartItemIds = new ArrayList<>();
+        for (List<CartItem> items : cartItemsByUser.values()) {
+            for (CartItem item : items) {
+                Long productId = item.getProduct().getId();
+                if (hotSkuEngine.isHot(productId)) {
+                    hotProductIds.add(productId);
+                    // 商品变为热点前留下的购物车预留在下单时归还库存，释放时要锁该商品行，一并按顺序加锁
+                    if (item.getHeldQuantity() > 0) {
+                        lockedProductIds.add(productId);
+                    }
+                } else {
+                    lockedProductIds.add(productId);
+                    lockedCartItemIds.add(item.getId());
+                }
             }
-            product.setStock(currentStock - cartItem.getQuantity());
-            productRepository.save(product);
+        }
+        // 所有结账都以相同顺序加锁，避免互相死锁；行已锁定，下面的库存检查不会再被并发结账改变
+        Map<Long, Integer> remainingStock = lockStock(new ArrayList<>(lockedProductIds));
+        // 加锁后再读购物车预留：预留的数量已经从库存中扣出，结账只需再扣其余部分
+        Map<Long, Integer> heldQuantities = stockHoldService.heldQuantities(lockedCartItemIds);
 
-            totalPrice = totalPrice.add(
-                product.getPrice()
-                    .multiply(BigDecimal.valueOf(cartItem.getQuantity()))
-            );
+        List<CheckoutResult> results = new ArrayList<>();
+        List<PlacedOrder> placed = new ArrayList<>();
+        Set<Long> servedUsers = new HashSet<>();
+        for (CheckoutRequest request : requests) {
+            Long userId = request.user().getId();
+            List<CartItem> lines = servedUsers.contains(userId)
+                    ? List.of()
+                    : cartItemsByUser.getOrDefault(userId, List.of());
+            if (lines.isEmpty()) {
+                results.add(new CheckoutResult(null, new RuntimeException("Cart is empty")));
+                continue;
+            }
+
+            CartItem shortLine = lines.stream()
+                    .filter(line -> !hotProductIds.contains(line.getProduct().getId()))
+                    .filter(line -> remainingStock.getOrDefault(line.getProduct().getId(), 0)
+                            < unheldQuantity(line, heldQuantities))
+                    .findFirst()
+                    .orElse(null);
+            if (shortLine != null) {
+                results.add(new CheckoutResult(null,
+                        new RuntimeException("Insufficient stock: " + shortLine.getProduct().getName())));
+                continue;
+            }
+
+            // 计算总价并预留库存
+            BigDecimal totalPrice = BigDecimal.ZERO;
+            for (CartItem line : lines) {
+                Product product = line.getProduct();
+                if (hotProductIds.contains(product.getId())) {
+                    // 热点商品在内存中预留，订单项标记为待写回，事务回滚时自动释放
+                    if (!hotSkuEngine.reserve(product.getId(), line.getQuantity())) {
+                        throw new RuntimeException("Insufficient stock: " + product.getName());
+                    }
+                } else {
+                    remainingStock.merge(product.getId(), -unheldQuantity(line, heldQuantities), Integer::sum);
+                }
+                totalPrice = totalPrice.add(
+                    product.getPrice()
+                        .multiply(BigDecimal.valueOf(line.getQuantity()))
+                );
+            }
+
+            // 创建订单
+            Order order = new Order();
+            order.setUser(request.user());
+            order.setStatus(Order.OrderStatus.PENDING);
+            order.setIdempotencyKey(request.idempotencyKey());
+            order.setTotalPrice(totalPrice);
+            placed.add(new PlacedOrder(order, lines));
+            servedUsers.add(userId);
+            results.add(new CheckoutResult(order, null));
         }
-        order.setTotalPrice(totalPrice);
-        order = orderRepository.save(order);
+        if (placed.isEmpty()) {
+            return results;
+        }
+
+        orderRepository.saveAll(placed.stream().map(PlacedOrder::order).toList());
+        List<CartItem> placedLines = placed.stream().flatMap(order -> order.lines().stream()).toList();
+        decrementStock(placedLines.stream()
+                .filter(line -> !hotProductIds.contains(line.getProduct().getId()))
+                .toList(), heldQuantities);
+
+        // 创建订单项（JDBC 批量插入，主键由数据库生成）
+        insertOrderItems(placed, hotProductIds);
+        // 订单列表读取的摘要与订单在同一事务中写入，后台统计在提交后计入
+        List<OrderSummary> summaries = placed.stream()
+                .map(order -> orderSummaryProjector.summarize(order.order(), order.lines()))
+                .toList();
+        orderSummaryProjector.insertAll(summaries);
+        orderAggregateService.recordPlaced(summaries);
+
+        // 热点商品的库存由内存引擎扣减，这些行上遗留的预留不再需要，删除购物车前归还
+        stockHoldService.release(placedLines.stream()
+                .filter(line -> hotProductIds.contains(line.getProduct().getId()) && line.getHeldQuantity() > 0)
+                .map(CartItem::getId)
+                .toList());
+
+        // 清空购物车（一条 DELETE）
+        cartService.clearCarts(placedLines.stream().map(line -> line.getCart().getId()).distinct().toList());
+
+        // 库存和订单项都是绕过持久化上下文写入的，清掉其中的旧状态
+        entityManager.flush();
+        entityManager.clear();
+
+        // 库存已变化，提交后失效商品缓存
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(
+                placedLines.stream().map(line -> line.getProduct().getId()).distinct().toList()));
+
+        return results;
+    }
 
-        // 创建订单项
-        for (CartItem cartItem : cartItems) {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(cartItem.getProduct());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setUnitPrice(cartItem.getProduct().getPrice());
-            orderItemRepository.save(orderItem);
+    // 按商品合并数量后一次批量执行条件扣减；行已加锁，影响行数为 0 只可能是数据被并发改动
+    private void decrementStock(List<CartItem> lines, Map<Long, Integer> heldQuantities) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, Product> products = new HashMap<>();
+        for (CartItem line : lines) {
+            int quantity = unheldQuantity(line, heldQuantities);
+            if (quantity > 0) {
+                quantities.merge(line.getProduct().getId(), quantity, Integer::sum);
+                products.put(line.getProduct().getId(), line.getProduct());
+            }
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> decrements = new ArrayList<>(quantities.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, decrements, decrements.size(), (ps, decrement) -> {
+            ps.setInt(1, decrement.getValue());
+            ps.setLong(2, decrement.getKey());
+            ps.setInt(3, decrement.getValue());
+        });
+        for (int i = 0; i < decrements.size(); i++) {
+            if (counts[0][i] == 0) {
+                throw new RuntimeException("Insufficient stock: " + products.get(decrements.get(i).getKey()).getName());
+            }
         }
+    }
+
+    // 购物车项中还没有预留、结账时需要从库存扣除的数量
+    private static int unheldQuantity(CartItem line, Map<Long, Integer> heldQuantities) {
+        return line.getQuantity() - heldQuantities.getOrDefault(line.getId(), 0);
+    }
 
-        // 清空购物车
-        cartService.clearCart(user);
+    private void insertOrderItems(List<PlacedOrder> placed, Set<Long> hotProductIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Order, CartItem>> rows = new ArrayList<>();
+        placed.forEach(order -> order.lines().forEach(line -> rows.add(Map.entry(order.order(), line))));
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, rows, rows.size(), (ps, row) -> {
+            CartItem line = row.getValue();
+            ps.setLong(1, row.getKey().getId());
+            ps.setLong(2, line.getProduct().getId());
+            ps.setInt(3, line.getQuantity());
+            ps.setBigDecimal(4, line.getProduct().getPrice());
+            ps.setBoolean(5, hotProductIds.contains(line.getProduct().getId()));
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+    }
 
-        return order;
+    // 一条 SELECT ... FOR UPDATE 按 id 顺序锁定所有商品行，记录等锁耗时
+    private Map<Long, Integer> lockStock(List<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "acquired";
+        try {
+            productRepository.lockStockForUpdate(productIds, stockLockTimeoutMillis)
+                    .forEach(level -> stock.put(level.productId(), level.stock()));
+            return stock;
+        } catch (PessimisticLockingFailureException | QueryTimeoutException ex) {
+            outcome = "timeout";
+            throw new ProductContentionException(productIds, ex);
+        } finally {
+            sample.stop(Timer.builder("shop.checkout.lock.wait")
+                    .description("Time spent acquiring product row locks during checkout")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
     }
 
-    // 获取用户的所有订单
+    // 用户的订单列表：在订单摘要表上按 (created_at, id) 倒序的游标分页，再用一条 IN 查询挂上这一页的订单项
     @Transactional(readOnly = true)
-    public List<OrderDto> getOrdersByUser(User user) {
-        return orderRepository.findByUser(user).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDto<OrderSummaryDto> getOrdersByUser(User user, String cursor, Integer limit) {
+        CursorPageDto<OrderSummaryDto> page = readPage(new OrderFilter(null, user.getId(), null, null), cursor, limit);
+        Map<Long, Set<OrderItemDto>> items = loadItems(page.getItems().stream().map(OrderSummaryDto::getId).toList());
+        page.getItems().forEach(order -> order.setOrderItems(items.get(order.getId())));
+        return page;
     }
 
+    // 后台订单列表：在订单摘要表上按 (created_at, id) 倒序的游标分页，可按状态、用户和时间段筛选；
+    // count=true 时附带总数，最多数到 count-cap 条，不做全表 COUNT
     @Transactional(readOnly = true)
-    public List<OrderDto> getAllOrdersForAdmin() {
-        return orderRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDto<OrderSummaryDto> findAdminOrderPage(OrderFilter filter, String cursor, Integer limit, boolean count) {
+        if (filter.getCreatedAfter() != null && filter.getCreatedBefore() != null
+                && filter.getCreatedAfter().isAfter(filter.getCreatedBefore())) {
+            throw new BadRequestException("createdAfter cannot be later than createdBefore");
+        }
+        CursorPageDto<OrderSummaryDto> page = readPage(filter, cursor, limit);
+        if (count) {
+            long counted = orderSummaryRepository.countUpTo(filter, adminCountCap + 1);
+            page.setTotalCount(Math.min(counted, adminCountCap));
+            page.setTotalCountCapped(counted > adminCountCap);
+        }
+        return page;
+    }
+
+    // 读一页订单摘要；不传 limit 时取默认页大小，永远不会读出整张表
+    private CursorPageDto<OrderSummaryDto> readPage(OrderFilter filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                afterCreatedAt = LocalDateTime.parse(decoded.substring(0, separator));
+                afterId = Long.valueOf(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
+        // 多取一行判断是否还有下一页
+        List<OrderSummaryDto> rows = orderSummaryRepository.findPage(filter, afterCreatedAt, afterId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummaryDto> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummaryDto last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new CursorPageDto<>(items, nextCursor, hasMore);
     }
 
     // 获取订单详情
@@ -116,15 +413,61 @@ public class OrderService {
 
     @Transactional
     public OrderDto updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
-        validateStatusTransition(order.getStatus(), status);
+        Order.OrderStatus previous = order.getStatus();
+        validateStatusTransition(previous, status);
         order.setStatus(status);
         order = orderRepository.save(order);
+        orderSummaryProjector.updateStatus(List.of(order.getId()), status);
+        orderAggregateService.recordStatusChange(orderSummaryRepository.findAllById(List.of(order.getId())),
+                previous, status);
         return convertToDTO(order);
     }
 
+    /**
+     * Cancels up to {@code limit} PENDING orders created before {@code cutoff} and returns their stock, using
+     * set-based SQL only: the order rows are locked and cancelled in one statement each, and the quantities are
+     * summed per product and added back in one batch. Orders whose hot-SKU items are not written back yet are
+     * left for a later run. Returns the number of orders cancelled.
+     */
+    @Transactional
+    public int expirePendingOrders(LocalDateTime cutoff, int limit) {
+        validateStatusTransition(Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED);
+        List<Long> orderIds = namedJdbcTemplate.queryForList(SELECT_EXPIRED_ORDERS_SQL, new MapSqlParameterSource()
+                .addValue("pending", Order.OrderStatus.PENDING.name())
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("limit", limit), Long.class);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        namedJdbcTemplate.update(CANCEL_ORDERS_SQL, new MapSqlParameterSource()
+                .addValue("cancelled", Order.OrderStatus.CANCELLED.name())
+                .addValue("ids", orderIds));
+        orderSummaryProjector.updateStatus(orderIds, Order.OrderStatus.CANCELLED);
+        orderAggregateService.recordStatusChange(orderSummaryRepository.findAllById(orderIds),
+                Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED);
+
+        // 按商品 id 顺序加回库存，与结账的加锁顺序一致
+        List<MapSqlParameterSource> restores = new ArrayList<>();
+        namedJdbcTemplate.query(SUM_ORDER_ITEMS_SQL, new MapSqlParameterSource("ids", orderIds), rs -> {
+            restores.add(new MapSqlParameterSource()
+                    .addValue("productId", rs.getLong("product_id"))
+                    .addValue("quantity", rs.getLong("quantity")));
+        });
+        namedJdbcTemplate.batchUpdate(RESTORE_STOCK_SQL, restores.toArray(MapSqlParameterSource[]::new));
+
+        List<Long> productIds = restores.stream().map(restore -> (Long) restore.getValue("productId")).toList();
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(productIds));
+        // 热点商品的可用量在内存中，提交后按数据库库存重新计算
+        Set<Long> hotProductIds = productIds.stream().filter(hotSkuEngine::isHot).collect(Collectors.toSet());
+        if (!hotProductIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, hotProductIds));
+        }
+        return orderIds.size();
+    }
+
     private void validateStatusTransition(Order.OrderStatus current, Order.OrderStatus target) {
         if (current == target) {
             return;
@@ -144,32 +487,26 @@ public class OrderService {
 
     // 转换为 DTO
     private OrderDto convertToDTO(Order order) {
-        OrderDto dto = new OrderDto();
-        dto.setId(order.getId());
-        dto.setTotalPrice(order.getTotalPrice());
-        dto.setStatus(order.getStatus());
-        dto.setCreatedAt(order.getCreatedAt());
-        dto.setUpdatedAt(order.getUpdatedAt());
-        
-        // 使用 JPQL 直接获取订单项
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-        Set<OrderItemDto> orderItemDtos = orderItems.stream()
-                .map(item -> {
-                    OrderItemDto itemDto = new OrderItemDto();
-                    itemDto.setId(item.getId());
-                    itemDto.setOrderId(order.getId());
-                    Product product = item.getProduct();
-                    itemDto.setProductId(product.getId());
-                    itemDto.setProductName(product.getName());
-                    itemDto.setProductImageUrl(product.getImageUrl());
-                    itemDto.setQuantity(item.getQuantity());
-                    itemDto.setUnitPrice(item.getUnitPrice());
-                    itemDto.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-                    return itemDto;
-                })
-                .collect(Collectors.toSet());
-        
-        dto.setOrderItems(orderItemDtos);
-        return dto;
+        return withItems(List.of(new OrderDto(order.getId(), order.getTotalPrice(), order.getStatus(),
+                order.getCreatedAt(), order.getUpdatedAt()))).get(0);
+    }
+
+    // 按 IN 批量查出这些订单的订单项并挂到对应订单上，每批一条查询
+    private List<OrderDto> withItems(List<OrderDto> orders) {
+        Map<Long, Set<OrderItemDto>> itemsByOrder = loadItems(orders.stream().map(OrderDto::getId).toList());
+        orders.forEach(order -> order.setOrderItems(itemsByOrder.get(order.getId())));
+        return orders;
+    }
+
+    // 每个订单 id 都有一个（可能为空的）订单项集合
+    private Map<Long, Set<OrderItemDto>> loadItems(List<Long> orderIds) {
+        Map<Long, Set<OrderItemDto>> itemsByOrder = new HashMap<>();
+        orderIds.forEach(orderId -> itemsByOrder.put(orderId, new LinkedHashSet<>()));
+        for (int from = 0; from < orderIds.size(); from += ITEM_QUERY_BATCH_SIZE) {
+            orderItemRepository.findDtosByOrderIdIn(
+                    orderIds.subList(from, Math.min(orderIds.size(), from + ITEM_QUERY_BATCH_SIZE)))
+                    .forEach(item -> itemsByOrder.get(item.getOrderId()).add(item));
+        }
+        return itemsByOrder;
     }
 }
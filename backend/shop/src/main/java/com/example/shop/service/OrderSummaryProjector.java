@@ -0,0 +1,217 @@
+package com.example.shop.service;
+
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.OrderSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the {@link OrderSummary} read model. Checkout and status changes call it inside their own
+ * transaction, so a summary row is committed (or rolled back) together with the order it describes.
+ * Orders placed before the table existed are summarized on startup by {@link #backfill()}; a completed
+ * backfill is recorded in data_migrations, and later startups only look up that row. Several instances may
+ * backfill at the same time: rows another instance has already written are skipped, not rejected.
+ */
+@Component
+public class OrderSummaryProjector {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSummaryProjector.class);
+
+    private static final String INSERT_SUMMARY_SQL = "INSERT INTO order_summaries "
+            + "(order_id, user_id, status, total_price, item_count, product_names, thumbnail_url, created_at, updated_at) "
+            + "VALUES (:orderId, :userId, :status, :totalPrice, :itemCount, :productNames, :thumbnailUrl, "
+            + ":createdAt, :updatedAt)";
+    // 回填可能与其他实例并发，已存在的摘要直接跳过
+    private static final String BACKFILL_SUMMARY_SQL = INSERT_SUMMARY_SQL + " ON CONFLICT DO NOTHING";
+    static final String BACKFILL_MIGRATION = "order_summaries_backfill";
+    private static final String MIGRATION_DONE_SQL = "SELECT COUNT(*) FROM data_migrations WHERE name = :name";
+    private static final String MARK_MIGRATION_DONE_SQL = "INSERT INTO data_migrations (name, completed_at) "
+            + "VALUES (:name, LOCALTIMESTAMP) ON CONFLICT DO NOTHING";
+    private static final String UPDATE_STATUS_SQL = "UPDATE order_summaries SET status = :status, "
+            + "updated_at = LOCALTIMESTAMP WHERE order_id IN (:ids)";
+    private static final String SELECT_UNSUMMARIZED_SQL = "SELECT o.id, o.user_id, o.status, o.total_price, "
+            + "o.created_at, o.updated_at FROM orders o WHERE o.id > :afterId "
+            + "AND NOT EXISTS (SELECT 1 FROM order_summaries s WHERE s.order_id = o.id) ORDER BY o.id LIMIT :limit";
+    private static final String SELECT_LINES_SQL = "SELECT oi.order_id, oi.quantity, p.name, p.image_url "
+            + "FROM order_items oi JOIN products p ON p.id = oi.product_id "
+            + "WHERE oi.order_id IN (:ids) ORDER BY oi.order_id, oi.id";
+    private static final String ELLIPSIS = "...";
+
+    // 订单中的一行商品：名称、图片和数量
+    private record Line(String name, String imageUrl, int quantity) {
+    }
+
+    // 一次回填的结果：本批最后一个订单 id（没有时为 null）和实际写入的行数
+    private record Chunk(Long lastOrderId, int written) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int backfillBatchSize;
+
+    public OrderSummaryProjector(NamedParameterJdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${shop.orders.summary.backfill-batch-size:1000}") int backfillBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.backfillBatchSize = Math.max(1, backfillBatchSize);
+    }
+
+    // 根据刚创建的订单和结账时的购物车项生成摘要
+    public OrderSummary summarize(Order order, List<CartItem> lines) {
+        return summarize(order.getId(), order.getUser().getId(), order.getStatus(), order.getTotalPrice(),
+                order.getCreatedAt(), order.getUpdatedAt(), lines.stream()
+                        .map(line -> new Line(line.getProduct().getName(), line.getProduct().getImageUrl(),
+                                line.getQuantity()))
+                        .toList());
+    }
+
+    // 批量插入摘要，必须在写订单的同一事务中调用
+    public void insertAll(Collection<OrderSummary> summaries) {
+        if (!summaries.isEmpty()) {
+            insert(INSERT_SUMMARY_SQL, summaries);
+        }
+    }
+
+    private int insert(String sql, Collection<OrderSummary> summaries) {
+        int[] counts = jdbcTemplate.batchUpdate(sql, summaries.stream()
+                .map(summary -> new MapSqlParameterSource()
+                        .addValue("orderId", summary.getOrderId())
+                        .addValue("userId", summary.getUserId())
+                        .addValue("status", summary.getStatus().name())
+                        .addValue("totalPrice", summary.getTotalPrice())
+                        .addValue("itemCount", summary.getItemCount())
+                        .addValue("productNames", summary.getProductNames())
+                        .addValue("thumbnailUrl", summary.getThumbnailUrl())
+                        .addValue("createdAt", timestamp(summary.getCreatedAt()))
+                        .addValue("updatedAt", timestamp(summary.getUpdatedAt())))
+                .toArray(MapSqlParameterSource[]::new));
+        return Arrays.stream(counts).map(count -> Math.max(count, 0)).sum();
+    }
+
+    // 同步订单状态，必须在修改订单的同一事务中调用
+    public void updateStatus(Collection<Long> orderIds, Order.OrderStatus status) {
+        if (!orderIds.isEmpty()) {
+            jdbcTemplate.update(UPDATE_STATUS_SQL, new MapSqlParameterSource()
+                    .addValue("status", status.name())
+                    .addValue("ids", orderIds));
+        }
+    }
+
+    // 回填完成后记一条迁移记录，之后启动只按主键查这一行，不再扫描订单表；先于其他读取摘要的启动任务运行
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillOnStartup() {
+        MapSqlParameterSource migration = new MapSqlParameterSource("name", BACKFILL_MIGRATION);
+        Long done = jdbcTemplate.queryForObject(MIGRATION_DONE_SQL, migration, Long.class);
+        if (done != null && done > 0) {
+            return;
+        }
+        backfill();
+        jdbcTemplate.update(MARK_MIGRATION_DONE_SQL, migration);
+    }
+
+    /**
+     * Writes summaries for orders that have none, in id order and one transaction per chunk.
+     * Returns the number of summaries written; summaries written concurrently by another instance are skipped.
+     */
+    public int backfill() {
+        int written = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            Chunk chunk = transactionTemplate.execute(status -> backfillChunk(from));
+            if (chunk == null || chunk.lastOrderId() == null) {
+                break;
+            }
+            written += chunk.written();
+            afterId = chunk.lastOrderId();
+        }
+        if (written > 0) {
+            log.info("Order summaries: backfilled {} orders.", written);
+        }
+        return written;
+    }
+
+    private Chunk backfillChunk(long afterId) {
+        List<OrderSummary> orders = new ArrayList<>();
+        jdbcTemplate.query(SELECT_UNSUMMARIZED_SQL, new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", backfillBatchSize), rs -> {
+            orders.add(new OrderSummary(rs.getLong("id"), rs.getLong("user_id"),
+                    Order.OrderStatus.valueOf(rs.getString("status")), rs.getBigDecimal("total_price"), 0, null, null,
+                    toLocalDateTime(rs.getTimestamp("created_at")), toLocalDateTime(rs.getTimestamp("updated_at"))));
+        });
+        if (orders.isEmpty()) {
+            return new Chunk(null, 0);
+        }
+
+        Map<Long, List<Line>> linesByOrder = new HashMap<>();
+        jdbcTemplate.query(SELECT_LINES_SQL,
+                new MapSqlParameterSource("ids", orders.stream().map(OrderSummary::getOrderId).toList()), rs -> {
+            linesByOrder.computeIfAbsent(rs.getLong("order_id"), id -> new ArrayList<>())
+                    .add(new Line(rs.getString("name"), rs.getString("image_url"), rs.getInt("quantity")));
+        });
+        List<OrderSummary> summaries = orders.stream()
+                .map(order -> summarize(order.getOrderId(), order.getUserId(), order.getStatus(),
+                        order.getTotalPrice(), order.getCreatedAt(), order.getUpdatedAt(),
+                        linesByOrder.getOrDefault(order.getOrderId(), List.of())))
+                .toList();
+        return new Chunk(orders.get(orders.size() - 1).getOrderId(), insert(BACKFILL_SUMMARY_SQL, summaries));
+    }
+
+    // 件数为所有商品数量之和；商品名去重后按下单顺序拼接，缩略图取第一件有图片的商品
+    private static OrderSummary summarize(Long orderId, Long userId, Order.OrderStatus status, BigDecimal totalPrice,
+                                          LocalDateTime createdAt, LocalDateTime updatedAt, List<Line> lines) {
+        int itemCount = 0;
+        Set<String> names = new LinkedHashSet<>();
+        String thumbnailUrl = null;
+        for (Line line : lines) {
+            itemCount += line.quantity();
+            if (line.name() != null) {
+                names.add(line.name());
+            }
+            if (thumbnailUrl == null && line.imageUrl() != null && !line.imageUrl().isBlank()) {
+                thumbnailUrl = line.imageUrl();
+            }
+        }
+        String productNames = names.isEmpty()
+                ? null
+                : truncate(String.join(", ", names), OrderSummary.PRODUCT_NAMES_LENGTH, ELLIPSIS);
+        return new OrderSummary(orderId, userId, status, totalPrice, itemCount, productNames, thumbnailUrl,
+                createdAt, updatedAt);
+    }
+
+    private static String truncate(String value, int maxLength, String suffix) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength - suffix.length()) + suffix;
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value == null ? null : Timestamp.valueOf(value);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp value) {
+        return value == null ? null : value.toLocalDateTime();
+    }
+}
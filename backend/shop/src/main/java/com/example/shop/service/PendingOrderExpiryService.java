@@ -0,0 +1,71 @@
+package com.example.shop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Cancels orders that stay PENDING (unpaid) longer than the configured timeout and returns their stock.
+ * <p>
+ * Each run works through the stale orders in chunks of {@code batch-size}, one short transaction per chunk
+ * ({@link OrderService#expirePendingOrders}), so a large backlog never holds locks for long and a failure
+ * only rolls back the current chunk.
+ */
+@Component
+public class PendingOrderExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingOrderExpiryService.class);
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final Duration timeout;
+    private final int batchSize;
+    private final Counter expired;
+
+    public PendingOrderExpiryService(OrderService orderService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${shop.orders.expiry.enabled:false}") boolean enabled,
+                                     @Value("${shop.orders.expiry.timeout-minutes:30}") long timeoutMinutes,
+                                     @Value("${shop.orders.expiry.batch-size:1000}") int batchSize) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.timeout = Duration.ofMinutes(timeoutMinutes);
+        this.batchSize = Math.max(1, batchSize);
+        this.expired = Counter.builder("shop.orders.expired")
+                .description("Unpaid orders cancelled after the payment timeout")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shop.orders.expiry.interval-ms:60000}",
+            initialDelayString = "${shop.orders.expiry.interval-ms:60000}")
+    public void scheduledExpiry() {
+        if (enabled) {
+            expire(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Cancels every order that was still PENDING {@code timeout} before {@code now}. Returns the number cancelled.
+     */
+    public int expire(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(timeout);
+        int total = 0;
+        int chunk;
+        do {
+            chunk = orderService.expirePendingOrders(cutoff, batchSize);
+            total += chunk;
+            expired.increment(chunk);
+        } while (chunk == batchSize);
+        if (total > 0) {
+            log.info("Cancelled {} unpaid orders created before {}.", total, cutoff);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.shop.service;
+
+import com.example.shop.config.CacheConfig;
+import com.example.shop.event.ProductChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class ProductCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    public ProductCacheInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // Evict after commit so a concurrent reader cannot re-cache the pre-commit row
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS);
+        if (products != null) {
+            event.productIds().forEach(products::evict);
+        }
+
+        Cache pages = cacheManager.getCache(CacheConfig.PRODUCT_PAGES);
+        if (pages != null) {
+            pages.clear();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.shop.service;
+
+import com.example.shop.exception.ProductContentionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+// 商品行并发冲突（乐观锁版本冲突、锁超时、死锁）的有限次重试。
+// 指标只按操作打标签，避免按商品打标签导致时间序列无限增长；具体是哪些商品写在日志里
+@Component
+public class ProductContentionPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductContentionPolicy.class);
+
+    public static final String CHECKOUT = "checkout";
+    public static final String ADMIN_UPDATE = "admin-update";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public ProductContentionPolicy(MeterRegistry meterRegistry,
+                                   @Value("${shop.products.contention.max-attempts:3}") int maxAttempts,
+                                   @Value("${shop.products.contention.backoff-ms:25}") long backoffMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+    }
+
+    // 执行 action，遇到并发冲突时按配置次数重试；每次尝试必须是独立的事务
+    public <T> T execute(String operation, Collection<Long> productIds, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException ex) {
+                Collection<Long> contended = ex instanceof ProductContentionException contention
+                        ? contention.getProductIds()
+                        : productIds;
+                recordConflict(operation, contended);
+                if (attempt >= maxAttempts) {
+                    log.info("{} gave up after {} attempts on products {}", operation, attempt, contended);
+                    throw ex;
+                }
+                counter("shop.products.contention.retries", "Retries after a conflict on a product row", operation)
+                        .increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    // 记录一次冲突（不重试的冲突，比如客户端提交的版本号已过期，也要计入）
+    public void recordConflict(String operation, Collection<Long> productIds) {
+        counter("shop.products.contention.conflicts", "Conflicting concurrent changes to a product row", operation)
+                .increment();
+        log.info("{} conflict on products {}", operation, productIds.isEmpty() ? "unknown" : productIds);
+    }
+
+    private Counter counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(backoffMillis * attempt);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
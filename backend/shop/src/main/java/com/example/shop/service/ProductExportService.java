@@ -0,0 +1,83 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.ExportFormat;
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.util.CsvRecordWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the whole catalog from a forward-only database cursor. The persistence context is
+ * cleared every {@link #CLEAR_INTERVAL} rows, so memory use does not depend on catalog size.
+ */
+@Service
+public class ProductExportService {
+
+    private static final int CLEAR_INTERVAL = 500;
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductExportService(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // PostgreSQL only honours the fetch size (server-side cursor) inside a transaction
+    @Transactional(readOnly = true)
+    public long exportProducts(ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            CsvRecordWriter.write(writer, "id", "name", "description", "price", "image_url", "stock", "details",
+                    "created_at", "updated_at");
+        }
+
+        long rows = 0;
+        try (Stream<Product> products = productRepository.streamAllByOrderByIdAsc()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                writeProduct(writer, format, iterator.next());
+                if (++rows % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void writeProduct(Writer writer, ExportFormat format, Product product) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(product));
+            writer.write('\n');
+            return;
+        }
+        CsvRecordWriter.write(writer,
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getImageUrl(),
+                product.getStock(),
+                product.getDetails(),
+                product.getCreatedAt(),
+                product.getUpdatedAt());
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.ProductImportResultDto;
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.exception.BadRequestException;
+import com.example.shop.util.CsvRecordReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams CSV / NDJSON product feeds into the catalog. Rows are parsed one at a time and written
+ * with JDBC batch inserts, one transaction per batch, so heap usage does not grow with file size.
+ * Ids come from the products identity column, which keeps the inserts batchable (Hibernate cannot
+ * batch IDENTITY inserts because it needs each generated key back).
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO products "
+            + "(name, description, price, image_url, stock, details, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("100000000");
+
+    private record ImportRow(long rowNumber,
+                             String name,
+                             String description,
+                             BigDecimal price,
+                             String imageUrl,
+                             int stock,
+                             String details) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${shop.products.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public ProductImportResultDto importCsv(Reader source) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new BufferedReader(source));
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new BadRequestException("CSV header row is required");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(normalizeColumn(header.get(i)), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("price")) {
+            throw new BadRequestException("CSV header must contain at least name and price columns");
+        }
+
+        ImportRun run = new ImportRun();
+        long rowNumber = 0;
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            rowNumber++;
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, Integer> column : columns.entrySet()) {
+                if (column.getValue() < record.size()) {
+                    values.put(column.getKey(), record.get(column.getValue()));
+                }
+            }
+            run.accept(rowNumber, values);
+        }
+        return run.finish();
+    }
+
+    public ProductImportResultDto importNdjson(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        ImportRun run = new ImportRun();
+        long rowNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, String> values = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.isObject()) {
+                    run.reject(rowNumber, "Row is not a JSON object");
+                    continue;
+                }
+                node.fields().forEachRemaining(field -> values.put(normalizeColumn(field.getKey()),
+                        field.getValue().isNull() ? null : field.getValue().asText()));
+            } catch (JsonProcessingException ex) {
+                run.reject(rowNumber, "Malformed JSON: " + ex.getOriginalMessage());
+                continue;
+            }
+            run.accept(rowNumber, values);
+        }
+        return run.finish();
+    }
+
+    private String normalizeColumn(String column) {
+        return column.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private ImportRow toRow(long rowNumber, Map<String, String> values) {
+        String name = trimToNull(values.get("name"));
+        if (name == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (name.length() > 100) {
+            throw new IllegalArgumentException("name cannot exceed 100 characters");
+        }
+
+        String description = trimToNull(values.get("description"));
+        if (description == null) {
+            throw new IllegalArgumentException("description is required");
+        }
+
+        String rawPrice = trimToNull(values.get("price"));
+        if (rawPrice == null) {
+            throw new IllegalArgumentException("price is required");
+        }
+        BigDecimal price;
+        try {
+            price = new BigDecimal(rawPrice);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("price is not a number: " + rawPrice);
+        }
+        if (price.signum() <= 0 || price.scale() > 2 || price.compareTo(MAX_PRICE) >= 0) {
+            throw new IllegalArgumentException("price must be positive with at most 8 integer and 2 decimal digits");
+        }
+
+        String imageUrl = trimToNull(values.get("imageurl"));
+        if (imageUrl != null && imageUrl.length() > 255) {
+            throw new IllegalArgumentException("imageUrl cannot exceed 255 characters");
+        }
+
+        int stock = 0;
+        String rawStock = trimToNull(values.get("stock"));
+        if (rawStock != null) {
+            try {
+                stock = Integer.parseInt(rawStock);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("stock is not an integer: " + rawStock);
+            }
+            if (stock < 0) {
+                throw new IllegalArgumentException("stock cannot be negative");
+            }
+        }
+
+        return new ImportRow(rowNumber, name, description, price, imageUrl, stock, trimToNull(values.get("details")));
+    }
+
+    private String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // 批量插入并返回数据库生成的主键
+    private List<Long> insertBatch(List<ImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                ImportRow row = rows.get(i);
+                                ps.setString(1, row.name());
+                                ps.setString(2, row.description());
+                                ps.setBigDecimal(3, row.price());
+                                if (row.imageUrl() == null) {
+                                    ps.setNull(4, Types.VARCHAR);
+                                } else {
+                                    ps.setString(4, row.imageUrl());
+                                }
+                                ps.setInt(5, row.stock());
+                                if (row.details() == null) {
+                                    ps.setNull(6, Types.VARCHAR);
+                                } else {
+                                    ps.setString(6, row.details());
+                                }
+                                ps.setTimestamp(7, now);
+                                ps.setTimestamp(8, now);
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return rows.size();
+                            }
+                        }, keys));
+        return keys.getKeyList().stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    /**
+     * Per-request import state: the pending batch and the running totals.
+     */
+    private final class ImportRun {
+
+        private final ProductImportResultDto result = new ProductImportResultDto();
+        private final List<ImportRow> pending = new ArrayList<>(batchSize);
+        // 本次导入生成的主键范围，导入结束后随事件发布，供搜索索引补齐
+        private long firstId = Long.MAX_VALUE;
+        private long lastId = Long.MIN_VALUE;
+
+        void accept(long rowNumber, Map<String, String> values) {
+            result.setReceived(result.getReceived() + 1);
+            ImportRow row;
+            try {
+                row = toRow(rowNumber, values);
+            } catch (IllegalArgumentException ex) {
+                recordError(rowNumber, ex.getMessage());
+                return;
+            }
+            pending.add(row);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long rowNumber, String message) {
+            result.setReceived(result.getReceived() + 1);
+            recordError(rowNumber, message);
+        }
+
+        ProductImportResultDto finish() {
+            flush();
+            if (result.getImported() > 0) {
+                eventPublisher.publishEvent(ProductChangedEvent.bulkImported(firstId, lastId));
+            }
+            log.info("Product import finished: received {}, imported {}, failed {}.",
+                    result.getReceived(), result.getImported(), result.getFailed());
+            return result;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                track(insertBatch(pending));
+                result.setImported(result.getImported() + pending.size());
+            } catch (DataAccessException batchFailure) {
+                // 整批失败时逐行重试，定位出具体失败的行，其余行照常导入
+                for (ImportRow row : pending) {
+                    try {
+                        track(insertBatch(List.of(row)));
+                        result.setImported(result.getImported() + 1);
+                    } catch (DataAccessException rowFailure) {
+                        recordError(row.rowNumber(), rowFailure.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            pending.clear();
+        }
+
+        private void track(List<Long> ids) {
+            for (Long id : ids) {
+                firstId = Math.min(firstId, id);
+                lastId = Math.max(lastId, id);
+            }
+        }
+
+        private void recordError(long rowNumber, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new ProductImportResultDto.RowError(rowNumber, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+    }
+}
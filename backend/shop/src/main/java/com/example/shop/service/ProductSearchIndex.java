@@ -0,0 +1,270 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.ProductSearchHitDto;
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over product name, description and details.
+ * Built once the application is ready and kept current from {@link ProductChangedEvent}s,
+ * so search requests never touch the database.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "the", "for", "with", "of", "to", "in", "on");
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.5f;
+    private static final float DETAILS_WEIGHT = 1.0f;
+    private static final double PREFIX_MATCH_FACTOR = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int BUILD_BATCH_SIZE = 500;
+
+    private record IndexedProduct(Long id,
+                                  String name,
+                                  BigDecimal price,
+                                  String imageUrl,
+                                  LocalDateTime updatedAt,
+                                  Map<String, Float> termWeights) {
+    }
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (product id -> field-weighted term frequency); sorted so the last query term can prefix-match
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long startedAt = System.nanoTime();
+        indexProducts(0L, Long.MAX_VALUE);
+        log.info("Product search index built: {} products, {} terms in {} ms.",
+                size(), termCount(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.type()) {
+            // 库存变化不影响索引内容
+            case STOCK_CHANGED -> { }
+            case DELETED -> event.productIds().forEach(this::remove);
+            // 批量导入只会新增行，按事件带来的主键范围补齐索引
+            case BULK_IMPORTED -> indexProducts(event.firstId() - 1, event.lastId());
+            case CREATED, UPDATED -> {
+                List<Product> products = productRepository.findAllById(event.productIds());
+                Set<Long> missing = new LinkedHashSet<>(event.productIds());
+                for (Product product : products) {
+                    index(product);
+                    missing.remove(product.getId());
+                }
+                missing.forEach(this::remove);
+            }
+        }
+    }
+
+    public void index(Product product) {
+        Map<String, Float> termWeights = new HashMap<>();
+        addTerms(termWeights, product.getName(), NAME_WEIGHT);
+        addTerms(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+        addTerms(termWeights, product.getDetails(), DETAILS_WEIGHT);
+        IndexedProduct document = new IndexedProduct(product.getId(), product.getName(), product.getPrice(),
+                product.getImageUrl(), product.getUpdatedAt(), termWeights);
+
+        lock.writeLock().lock();
+        try {
+            IndexedProduct existing = documents.get(product.getId());
+            // 启动构建与增量更新并发时，不要用旧版本覆盖新版本
+            if (existing != null && isOlder(document.updatedAt(), existing.updatedAt())) {
+                return;
+            }
+            if (existing != null) {
+                unlink(existing);
+            }
+            documents.put(document.id(), document);
+            termWeights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, ignored -> new HashMap<>()).put(document.id(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            IndexedProduct existing = documents.remove(productId);
+            if (existing != null) {
+                unlink(existing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSearchHitDto> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            Map<Long, Double> scores = new HashMap<>();
+            Map<Long, Integer> matchedTerms = new HashMap<>();
+
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                boolean last = i == terms.size() - 1;
+                Map<Long, Double> termScores = new HashMap<>();
+
+                accumulate(termScores, term, postings.get(term), documentCount, 1.0);
+                if (last) {
+                    // 最后一个词按前缀匹配，支持边输入边搜索
+                    int expansions = 0;
+                    SortedMap<String, Map<Long, Float>> prefixed = postings.subMap(term, term + Character.MAX_VALUE);
+                    for (Map.Entry<String, Map<Long, Float>> entry : prefixed.entrySet()) {
+                        if (entry.getKey().equals(term)) {
+                            continue;
+                        }
+                        if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                            break;
+                        }
+                        accumulate(termScores, entry.getKey(), entry.getValue(), documentCount, PREFIX_MATCH_FACTOR);
+                    }
+                }
+
+                termScores.forEach((productId, score) -> {
+                    scores.merge(productId, score, Double::sum);
+                    matchedTerms.merge(productId, 1, Integer::sum);
+                });
+            }
+
+            // 先按命中的查询词数量排序，再按相关度得分排序
+            return scores.entrySet().stream()
+                    .sorted(Comparator.<Map.Entry<Long, Double>>comparingInt(entry -> matchedTerms.get(entry.getKey()))
+                            .reversed()
+                            .thenComparing(Map.Entry::getValue, Comparator.reverseOrder())
+                            .thenComparing(Map.Entry::getKey))
+                    .limit(limit)
+                    .map(entry -> {
+                        IndexedProduct document = documents.get(entry.getKey());
+                        return new ProductSearchHitDto(document.id(), document.name(), document.price(),
+                                document.imageUrl(), entry.getValue());
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 分批索引 id 在 (afterId, lastId] 范围内的商品
+    private void indexProducts(long afterId, long lastId) {
+        long cursor = afterId;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(cursor, lastId,
+                    Limit.of(BUILD_BATCH_SIZE));
+            batch.forEach(this::index);
+            if (!batch.isEmpty()) {
+                cursor = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void accumulate(Map<Long, Double> termScores,
+                            String term,
+                            Map<Long, Float> postingList,
+                            int documentCount,
+                            double factor) {
+        if (postingList == null || postingList.isEmpty()) {
+            return;
+        }
+        double idf = Math.log(1.0 + (double) documentCount / postingList.size());
+        postingList.forEach((productId, weight) ->
+                termScores.merge(productId, factor * idf * weight, Math::max));
+    }
+
+    private void unlink(IndexedProduct document) {
+        for (String term : document.termWeights().keySet()) {
+            Map<Long, Float> postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(document.id());
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private boolean isOlder(LocalDateTime candidate, LocalDateTime current) {
+        return candidate != null && current != null && candidate.isBefore(current);
+    }
+
+    private void addTerms(Map<String, Float> termWeights, String text, float weight) {
+        for (String term : tokenize(text)) {
+            termWeights.merge(term, weight, Float::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
@@ -1,30 +1,156 @@
 package com.example.shop.service;
 
+import com.example.shop.config.CacheConfig;
+import com.example.shop.dto.CursorPageDto;
+import com.example.shop.dto.ProductBatchDto;
+import com.example.shop.dto.ProductDetailDto;
+import com.example.shop.dto.ProductFilter;
+import com.example.shop.dto.ProductSort;
+import com.example.shop.dto.ProductSearchHitDto;
+import com.example.shop.dto.ProductSummaryDto;
 import com.example.shop.model.Product;
 import com.example.shop.repository.ProductRepository;
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.exception.BadRequestException;
+import com.example.shop.exception.ConflictException;
 import com.example.shop.exception.ResourceNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_SIZE = 500;
+
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductSearchIndex searchIndex;
+    private final ProductContentionPolicy contentionPolicy;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          ProductSearchIndex searchIndex,
+                          ProductContentionPolicy contentionPolicy) {
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.searchIndex = searchIndex;
+        this.contentionPolicy = contentionPolicy;
+    }
+
+    // 获取所有商品（列表行，不含大字段）
+    public List<ProductSummaryDto> getAllProducts() {
+        return productRepository.findAllSummaries();
+    }
+
+    // 按 id 游标分页获取商品列表
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGES, key = "#after + ':' + #limit")
+    public CursorPageDto<ProductSummaryDto> getProductPage(Long after, Integer limit) {
+        int pageSize = normalizePageSize(limit);
+        long cursor = after == null ? 0L : Math.max(after, 0L);
+
+        // 多取一行用来判断是否还有下一页，不需要额外的 count 查询
+        List<ProductSummaryDto> rows = productRepository.findSummariesAfter(cursor, Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductSummaryDto> items = hasMore ? List.copyOf(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+        return new CursorPageDto<>(items, nextCursor, hasMore);
+    }
+
+    // 带过滤条件和排序的游标分页；游标由上一页最后一行的排序键和 id 组成
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGES,
+            key = "#filter + ':' + #sort + ':' + #cursor + ':' + #limit")
+    public CursorPageDto<ProductSummaryDto> findProductPage(ProductFilter filter,
+                                                            ProductSort sort,
+                                                            String cursor,
+                                                            Integer limit) {
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new BadRequestException("minPrice cannot be greater than maxPrice");
+        }
+        int pageSize = normalizePageSize(limit);
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] key = decodeCursor(sort, cursor);
+            afterId = parseCursorPart(key[1], Long::valueOf);
+            afterValue = switch (sort) {
+                case ID -> null;
+                case PRICE_ASC, PRICE_DESC -> parseCursorPart(key[0], BigDecimal::new);
+                case NEWEST -> key[0].isEmpty() ? null : parseCursorPart(key[0], LocalDateTime::parse);
+            };
+        }
+
+        List<ProductSummaryDto> rows = productRepository.findSummaries(filter, sort, afterValue, afterId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductSummaryDto> items = hasMore ? List.copyOf(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? encodeCursor(sort, items.get(items.size() - 1)) : null;
+        return new CursorPageDto<>(items, nextCursor, hasMore);
+    }
+
+    // 按 id 集合批量获取商品：一次 IN 查询，结果按请求顺序返回，并列出不存在的 id
+    public ProductBatchDto getProductsByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("ids must not be empty");
+        }
+        Set<Long> requested = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                requested.add(id);
+            }
+        }
+        if (requested.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("At most " + MAX_BATCH_SIZE + " ids can be requested at once");
+        }
+
+        Map<Long, ProductSummaryDto> found = productRepository.findSummariesByIdIn(requested).stream()
+                .collect(Collectors.toMap(ProductSummaryDto::getId, Function.identity()));
+        List<ProductSummaryDto> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            ProductSummaryDto product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchDto(products, missingIds);
+    }
+
+    // 搜索商品：完全由内存倒排索引应答
+    public List<ProductSearchHitDto> searchProducts(String query, Integer limit) {
+        return searchIndex.search(query, normalizePageSize(limit));
     }
 
-    // 获取所有商品
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    // 商品详情（只缓存找到的商品，写操作通过 ProductChangedEvent 失效）
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
+    public ProductDetailDto getProductDetail(Long id) {
+        return productRepository.findDetailById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
     }
 
-    // 根据ID获取商品
+    // 根据ID获取商品实体
     public Product getProductById(Long id) {
         return productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
@@ -32,13 +158,28 @@ public class ProductService {
 
     // 添加新商品（管理员功能，可选）
     public Product addProduct(Product product) {
-        return productRepository.save(product);
+        product.setVersion(null);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ProductChangedEvent.Type.CREATED, saved.getId()));
+        return saved;
     }
 
     // 更新商品信息（管理员功能，可选）
+    // 带 version 的请求在版本不一致时返回 409；与结账等并发修改撞车时按重试策略重新读取再应用
     public Product updateProduct(Long id, Product productDetails) {
+        Product saved = contentionPolicy.execute(ProductContentionPolicy.ADMIN_UPDATE, List.of(id),
+                () -> applyUpdate(id, productDetails));
+        eventPublisher.publishEvent(ProductChangedEvent.of(ProductChangedEvent.Type.UPDATED, id));
+        return saved;
+    }
+
+    private Product applyUpdate(Long id, Product productDetails) {
         Product existingProduct = getProductById(id);
-        
+        if (productDetails.getVersion() != null && !productDetails.getVersion().equals(existingProduct.getVersion())) {
+            contentionPolicy.recordConflict(ProductContentionPolicy.ADMIN_UPDATE, List.of(id));
+            throw new ConflictException("Product " + id + " was modified by someone else, please reload and try again");
+        }
+
         // 只更新非null的字段
         if (productDetails.getName() != null) {
             existingProduct.setName(productDetails.getName());
@@ -66,5 +207,52 @@ public class ProductService {
     public void deleteProduct(Long id) {
         Product product = getProductById(id);
         productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ProductChangedEvent.Type.DELETED, id));
+    }
+
+    // id 排序的游标就是 id 本身，与 after 参数兼容；其他排序把 "排序键|id" 编码成不透明字符串。
+    // created_at 为空的商品排序键编码为空串
+    private String encodeCursor(ProductSort sort, ProductSummaryDto last) {
+        String key = switch (sort) {
+            case ID -> null;
+            case PRICE_ASC, PRICE_DESC -> last.getPrice().toPlainString();
+            case NEWEST -> last.getCreatedAt() == null ? "" : last.getCreatedAt().toString();
+        };
+        if (key == null) {
+            return String.valueOf(last.getId());
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(ProductSort sort, String cursor) {
+        if (sort == ProductSort.ID) {
+            return new String[] {null, cursor};
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (separator < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new String[] {decoded.substring(0, separator), decoded.substring(separator + 1)};
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private <T> T parseCursorPart(String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private int normalizePageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
     }
 }
@@ -0,0 +1,251 @@
+package com.example.shop.service;
+
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.util.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// 可选的购物车库存锁定：加入购物车时从 products.stock 扣出数量，记在购物车行上（held_quantity、hold_expires_at），
+// 结账时消耗锁定，删除购物车行时归还。到期时间放在时间轮里而不是轮询数据库，每次 tick 在一个批量事务里归还到期锁定。
+// 购物车行是持久记录：启动时重新加载到期时间，每次归还都在商品锁下重新检查该行，过期或重复的定时项不会造成影响。
+// 加锁顺序与结账一致：先商品行，后购物车行
+@Component
+public class StockHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockHoldService.class);
+
+    private static final String TAKE_STOCK_SQL = "UPDATE products SET stock = stock - :quantity, "
+            + "version = version + 1, updated_at = LOCALTIMESTAMP WHERE id = :productId AND stock >= :quantity";
+    private static final String RETURN_STOCK_SQL = "UPDATE products SET stock = stock + :quantity, "
+            + "version = version + 1, updated_at = LOCALTIMESTAMP WHERE id = :productId";
+    private static final String SELECT_HELD_SQL = "SELECT id, product_id, held_quantity FROM cart_items "
+            + "WHERE id IN (:ids) AND held_quantity > 0";
+    private static final String SELECT_EXPIRED_SQL = SELECT_HELD_SQL + " AND hold_expires_at <= :now";
+    private static final String CLEAR_HOLD_SQL =
+            "UPDATE cart_items SET held_quantity = 0, hold_expires_at = NULL WHERE id = :id";
+
+    // 一条已持有库存的购物车项
+    private record Hold(long cartItemId, long productId, int quantity) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final HotSkuReservationEngine hotSkuEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int releaseBatchSize;
+    private final int lockTimeoutMillis;
+    private final HierarchicalTimingWheel<Long> deadlines;
+    private final Counter released;
+
+    public StockHoldService(NamedParameterJdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            ProductRepository productRepository,
+                            HotSkuReservationEngine hotSkuEngine,
+                            ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry,
+                            @Value("${shop.stock.holds.enabled:false}") boolean enabled,
+                            @Value("${shop.stock.holds.ttl-seconds:900}") long ttlSeconds,
+                            @Value("${shop.stock.holds.tick-ms:1000}") long tickMillis,
+                            @Value("${shop.stock.holds.wheel-size:512}") int wheelSize,
+                            @Value("${shop.stock.holds.release-batch-size:500}") int releaseBatchSize,
+                            @Value("${shop.checkout.lock-timeout-ms:3000}") int lockTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productRepository = productRepository;
+        this.hotSkuEngine = hotSkuEngine;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.releaseBatchSize = Math.max(1, releaseBatchSize);
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.deadlines = new HierarchicalTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        Gauge.builder("shop.stock.holds.scheduled", deadlines, HierarchicalTimingWheel::size)
+                .description("Cart stock holds waiting for expiry")
+                .register(meterRegistry);
+        this.released = Counter.builder("shop.stock.holds.released")
+                .description("Units returned to stock by expired or removed cart holds")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 该商品是否走库存预留（热点商品由内存引擎管理，库存为空表示不限量）
+    public boolean isActive(Product product) {
+        return enabled && product.getStock() != null && !hotSkuEngine.isHot(product.getId());
+    }
+
+    // 把购物车行的锁定数量设为 quantity 并重新计时；必须在保存该行的事务内调用，库存不足时抛异常
+    public void hold(CartItem item, int quantity) {
+        Product product = item.getProduct();
+        int delta = quantity - item.getHeldQuantity();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("productId", product.getId())
+                .addValue("quantity", Math.abs(delta));
+        if (delta > 0 && jdbcTemplate.update(TAKE_STOCK_SQL, params) == 0) {
+            throw new RuntimeException("Insufficient stock: " + product.getName());
+        }
+        if (delta < 0) {
+            jdbcTemplate.update(RETURN_STOCK_SQL, params);
+        }
+
+        Instant expiresAt = Instant.now().plus(ttl);
+        item.setHeldQuantity(quantity);
+        item.setHoldExpiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+        // 提交后再登记到期时间，id 此时已分配；回滚则不登记
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deadlines.schedule(item.getId(), expiresAt.toEpochMilli());
+            }
+        });
+        if (delta != 0) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(List.of(product.getId())));
+        }
+    }
+
+    // 把这些购物车行锁定的库存归还（如删除行之前）；必须在事务内调用
+    public void release(Collection<Long> cartItemIds) {
+        if (enabled && !cartItemIds.isEmpty()) {
+            releaseLocked(cartItemIds, null);
+        }
+    }
+
+    // 各购物车行锁定的数量；结账在锁住商品行之后调用，提交前结果不会变化
+    public Map<Long, Integer> heldQuantities(Collection<Long> cartItemIds) {
+        Map<Long, Integer> held = new HashMap<>();
+        if (enabled && !cartItemIds.isEmpty()) {
+            findHolds(SELECT_HELD_SQL, cartItemIds, null).forEach(hold -> held.put(hold.cartItemId(), hold.quantity()));
+        }
+        return held;
+    }
+
+    // 启动时从购物车表重新登记所有未到期的预留，已过期的在下一次 tick 释放；
+    // 商品已变为热点的预留不再登记，直接归还库存（在 HotSkuReservationEngine.start 之后运行）
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> hotHolds = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, product_id, hold_expires_at FROM cart_items WHERE held_quantity > 0", rs -> {
+            if (hotSkuEngine.isHot(rs.getLong("product_id"))) {
+                hotHolds.add(rs.getLong("id"));
+                return;
+            }
+            Timestamp expiresAt = rs.getTimestamp("hold_expires_at");
+            deadlines.schedule(rs.getLong("id"), expiresAt == null ? 0 : expiresAt.getTime());
+        });
+        int units = 0;
+        for (int from = 0; from < hotHolds.size(); from += releaseBatchSize) {
+            List<Long> chunk = hotHolds.subList(from, Math.min(hotHolds.size(), from + releaseBatchSize));
+            Integer chunkUnits = transactionTemplate.execute(status -> releaseLocked(chunk, null));
+            units += chunkUnits == null ? 0 : chunkUnits;
+        }
+        log.info("Stock holds: {} cart lines scheduled for expiry, {} units on hot SKUs returned to stock.",
+                deadlines.size(), units);
+    }
+
+    @Scheduled(fixedDelayString = "${shop.stock.holds.tick-ms:1000}")
+    public void scheduledExpiry() {
+        if (enabled) {
+            expire(System.currentTimeMillis());
+        }
+    }
+
+    // 把时间轮推进到 nowMillis，分批归还到期的锁定，返回归还的数量
+    public int expire(long nowMillis) {
+        List<Long> expired = deadlines.advance(nowMillis);
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), ZoneId.systemDefault());
+        int units = 0;
+        for (int from = 0; from < expired.size(); from += releaseBatchSize) {
+            List<Long> chunk = expired.subList(from, Math.min(expired.size(), from + releaseBatchSize));
+            Integer chunkUnits = transactionTemplate.execute(status -> releaseLocked(chunk, now));
+            units += chunkUnits == null ? 0 : chunkUnits;
+        }
+        return units;
+    }
+
+    // 先按 id 顺序锁定商品行，再在锁内重新读取预留，只释放仍然有效（且已到期）的部分
+    private int releaseLocked(Collection<Long> cartItemIds, LocalDateTime expiredBy) {
+        String sql = expiredBy == null ? SELECT_HELD_SQL : SELECT_EXPIRED_SQL;
+        List<Hold> candidates = findHolds(sql, cartItemIds, expiredBy);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        productRepository.lockStockForUpdate(candidates.stream().map(Hold::productId).distinct().toList(),
+                lockTimeoutMillis);
+        List<Hold> holds = findHolds(sql, cartItemIds, expiredBy);
+        if (holds.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Integer> quantities = new TreeMap<>();
+        holds.forEach(hold -> quantities.merge(hold.productId(), hold.quantity(), Integer::sum));
+        jdbcTemplate.batchUpdate(CLEAR_HOLD_SQL, holds.stream()
+                .map(hold -> new MapSqlParameterSource("id", hold.cartItemId()))
+                .toArray(MapSqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(RETURN_STOCK_SQL, quantities.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("productId", entry.getKey())
+                        .addValue("quantity", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new));
+
+        int units = quantities.values().stream().mapToInt(Integer::intValue).sum();
+        released.increment(units);
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(quantities.keySet()));
+        // 热点商品的可用量在内存中，提交后按数据库库存重新计算
+        Set<Long> hotProductIds = quantities.keySet().stream().filter(hotSkuEngine::isHot).collect(Collectors.toSet());
+        if (!hotProductIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, hotProductIds));
+        }
+        return units;
+    }
+
+    private List<Hold> findHolds(String sql, Collection<Long> cartItemIds, LocalDateTime expiredBy) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", cartItemIds);
+        if (expiredBy != null) {
+            params.addValue("now", Timestamp.valueOf(expiredBy));
+        }
+        List<Hold> holds = new ArrayList<>();
+        jdbcTemplate.query(sql, params, rs -> {
+            holds.add(new Hold(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("held_quantity")));
+        });
+        return holds;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.shop.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: quoted fields, escaped quotes and line breaks inside quotes.
+ * Reads one record at a time so arbitrarily large inputs never need to be buffered.
+ */
+public class CsvRecordReader {
+
+    private final Reader reader;
+    private int pushedBack = -2;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the next record's fields, or {@code null} at end of input. Blank lines are skipped.
+     */
+    public List<String> next() throws IOException {
+        while (true) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean inQuotes = false;
+            boolean sawContent = false;
+            int c;
+
+            while ((c = read()) != -1) {
+                if (inQuotes) {
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            unread(following);
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                    continue;
+                }
+
+                if (c == '"') {
+                    inQuotes = true;
+                    sawContent = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    sawContent = true;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        int following = read();
+                        if (following != '\n') {
+                            unread(following);
+                        }
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                    sawContent = true;
+                }
+            }
+
+            if (c == -1 && !sawContent) {
+                return null;
+            }
+            if (!sawContent) {
+                continue;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
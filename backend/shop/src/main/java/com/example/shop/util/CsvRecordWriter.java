@@ -0,0 +1,41 @@
+package com.example.shop.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes RFC 4180 records, quoting only the fields that need it.
+ */
+public final class CsvRecordWriter {
+
+    private CsvRecordWriter() {
+    }
+
+    public static void write(Writer writer, Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, fields[i]);
+        }
+        writer.write('\n');
+    }
+
+    private static void writeField(Writer writer, Object field) throws IOException {
+        if (field == null) {
+            return;
+        }
+        String value = field.toString();
+        boolean needsQuotes = value.indexOf(',') >= 0
+                || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.shop.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts.
+ * <p>
+ * Scheduling and expiring are O(1) per entry: the first wheel has {@code wheelSize} slots of
+ * {@code tickMillis}; deadlines beyond its span go to an overflow wheel whose slot covers a whole
+ * turn of the wheel below, created on demand. When an overflow slot comes up its entries are
+ * cascaded into the finer wheels. Entries never fire early and fire at most one tick late.
+ * <p>
+ * The wheel does not run a thread; the owner calls {@link #advance(long)} periodically.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private record Entry<T>(T item, long expiresAt) {
+    }
+
+    private final Wheel root;
+    private final List<T> due = new ArrayList<>();
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize at least 2");
+        }
+        this.root = new Wheel(tickMillis, wheelSize, startMillis - Math.floorMod(startMillis, tickMillis), true);
+    }
+
+    // 登记一个到期时间；已经到期的条目在下一次 advance 时返回
+    public synchronized void schedule(T item, long expiresAtMillis) {
+        size++;
+        place(new Entry<>(item, expiresAtMillis));
+    }
+
+    // 时间推进到 nowMillis，返回期间到期的全部条目
+    public synchronized List<T> advance(long nowMillis) {
+        while (root.currentTime + root.tick <= nowMillis) {
+            root.advance(root.currentTime + root.tick);
+        }
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        if (!root.add(entry)) {
+            due.add(entry.item());
+        }
+    }
+
+    private final class Wheel {
+
+        private final long tick;
+        private final int wheelSize;
+        // 最底层按槽位结束时间触发（不提前）；上层按槽位开始时间把条目下放到更细的时间轮
+        private final boolean finest;
+        private final List<List<Entry<T>>> buckets;
+        private long currentTime;
+        private Wheel overflow;
+
+        Wheel(long tick, int wheelSize, long currentTime, boolean finest) {
+            this.tick = tick;
+            this.wheelSize = wheelSize;
+            this.finest = finest;
+            this.currentTime = currentTime;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+        }
+
+        boolean add(Entry<T> entry) {
+            if (entry.expiresAt() <= currentTime) {
+                return false;
+            }
+            long currentSlot = Math.floorDiv(currentTime, tick);
+            long slot = finest ? -Math.floorDiv(-entry.expiresAt(), tick) : Math.floorDiv(entry.expiresAt(), tick);
+            if (slot - currentSlot <= wheelSize) {
+                bucket(slot).add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                long overflowTick = tick * wheelSize;
+                overflow = new Wheel(overflowTick, wheelSize, currentTime - Math.floorMod(currentTime, overflowTick), false);
+            }
+            return overflow.add(entry);
+        }
+
+        void advance(long time) {
+            currentTime = time;
+            List<Entry<T>> bucket = bucket(Math.floorDiv(time, tick));
+            List<Entry<T>> fired = new ArrayList<>(bucket);
+            bucket.clear();
+            if (overflow != null && Math.floorMod(time, overflow.tick) == 0) {
+                overflow.advance(time);
+            }
+            fired.forEach(HierarchicalTimingWheel.this::place);
+        }
+
+        private List<Entry<T>> bucket(long slot) {
+            return buckets.get((int) Math.floorMod(slot, (long) wheelSize));
+        }
+    }
+}
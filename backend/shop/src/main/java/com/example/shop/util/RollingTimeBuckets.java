@@ -0,0 +1,79 @@
+package com.example.shop.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring of time buckets for rolling sums (e.g. orders, revenue and units per minute).
+ * <p>
+ * Bucket {@code n} covers {@code [n * widthMillis, (n + 1) * widthMillis)} and lives in slot
+ * {@code n mod size}; a slot is reset when a newer bucket claims it, so only the latest {@code size}
+ * buckets are kept. Adding and resetting are O(1) and a snapshot is O(size), independent of traffic.
+ * Values older than the ring are dropped. Amounts may be negative to take back earlier additions.
+ */
+public class RollingTimeBuckets {
+
+    // 一个时间桶：起始时间和累计值
+    public record Bucket(long startMillis, long count, long amount, long units) {
+    }
+
+    private final long widthMillis;
+    private final int size;
+    private final long[] bucketIds;
+    private final long[] counts;
+    private final long[] amounts;
+    private final long[] units;
+
+    public RollingTimeBuckets(long widthMillis, int size) {
+        if (widthMillis <= 0 || size < 1) {
+            throw new IllegalArgumentException("widthMillis and size must be positive");
+        }
+        this.widthMillis = widthMillis;
+        this.size = size;
+        this.bucketIds = new long[size];
+        this.counts = new long[size];
+        this.amounts = new long[size];
+        this.units = new long[size];
+        clear();
+    }
+
+    // 累加到 timeMillis 所在的时间桶；比该槽位现有时间桶更旧的值直接丢弃
+    public synchronized void add(long timeMillis, long count, long amount, long units) {
+        long bucketId = Math.floorDiv(timeMillis, widthMillis);
+        int slot = (int) Math.floorMod(bucketId, (long) size);
+        if (bucketIds[slot] > bucketId) {
+            return;
+        }
+        if (bucketIds[slot] < bucketId) {
+            bucketIds[slot] = bucketId;
+            counts[slot] = 0;
+            amounts[slot] = 0;
+            this.units[slot] = 0;
+        }
+        counts[slot] += count;
+        amounts[slot] += amount;
+        this.units[slot] += units;
+    }
+
+    // 截至 nowMillis 的最近 size 个时间桶，按时间从旧到新；没有数据的桶为 0
+    public synchronized List<Bucket> snapshot(long nowMillis) {
+        long newest = Math.floorDiv(nowMillis, widthMillis);
+        List<Bucket> buckets = new ArrayList<>(size);
+        for (long bucketId = newest - size + 1; bucketId <= newest; bucketId++) {
+            int slot = (int) Math.floorMod(bucketId, (long) size);
+            buckets.add(bucketIds[slot] == bucketId
+                    ? new Bucket(bucketId * widthMillis, counts[slot], amounts[slot], units[slot])
+                    : new Bucket(bucketId * widthMillis, 0, 0, 0));
+        }
+        return buckets;
+    }
+
+    public synchronized void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            bucketIds[slot] = Long.MIN_VALUE;
+            counts[slot] = 0;
+            amounts[slot] = 0;
+            units[slot] = 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.shop.config;
 
 import com.example.shop.model.Product;
 import com.example.shop.repository.ProductRepository;
+import com.example.shop.service.CatalogVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -25,7 +26,7 @@ class DemoCatalogSeederTest {
     @BeforeEach
     void setUp() {
         productRepository = Mockito.mock(ProductRepository.class);
-        seeder = new DemoCatalogSeeder(productRepository);
+        seeder = new DemoCatalogSeeder(productRepository, Mockito.mock(CatalogVersion.class));
     }
 
     @Test
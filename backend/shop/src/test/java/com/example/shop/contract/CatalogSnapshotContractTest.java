@@ -0,0 +1,129 @@
+package com.example.shop.contract;
+
+import com.example.shop.model.Product;
+import com.example.shop.service.CatalogSnapshotService;
+import com.example.shop.service.CatalogVersion;
+import com.example.shop.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "shop.catalog.snapshot.enabled=true")
+@AutoConfigureMockMvc
+class CatalogSnapshotContractTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setName("Snapshot Product");
+        product.setDescription("Served from memory");
+        product.setPrice(new BigDecimal("9.90"));
+        product.setStock(3);
+        productId = productService.addProduct(product).getId();
+        catalogSnapshotService.rebuildNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productService.deleteProduct(productId);
+    }
+
+    @Test
+    void firstPage_shouldBeServedGzippedWhenAccepted() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products").param("limit", "20")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn();
+
+        byte[] compressed = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            String json = new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(json).contains("\"name\":\"Snapshot Product\"").contains("\"hasMore\"");
+        }
+    }
+
+    @Test
+    void fullListing_shouldBeServedAsPlainJsonWithoutAcceptEncoding() throws Exception {
+        mockMvc.perform(get("/api/products"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(jsonPath("$[?(@.id == " + productId + ")].name").value("Snapshot Product"));
+    }
+
+    @Test
+    void snapshot_shouldAnswerMatchingIfNoneMatchWith304() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products").param("limit", "20"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products").param("limit", "20")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void staleSnapshot_shouldNotBeServedAfterAnotherInstanceWrites() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products").param("limit", "20"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Another instance renames the product and bumps the shared version; this instance gets no event
+        jdbcTemplate.update("UPDATE products SET name = 'Renamed Elsewhere', version = version + 1, "
+                + "updated_at = LOCALTIMESTAMP WHERE id = ?", productId);
+        catalogVersion.bump();
+
+        String current = mockMvc.perform(get("/api/products").param("limit", "20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[?(@.id == " + productId + ")].name").value("Renamed Elsewhere"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(current).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void uncoveredPageSize_shouldFallBackToLiveQuery() throws Exception {
+        mockMvc.perform(get("/api/products").param("limit", "7")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(jsonPath("$.items").isArray());
+    }
+}
@@ -1,13 +1,19 @@
 package com.example.shop.contract;
 
+import com.example.shop.controller.OrderController;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
 import com.example.shop.model.Order;
 import com.example.shop.model.OrderItem;
 import com.example.shop.model.Product;
 import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
 import com.example.shop.repository.OrderItemRepository;
 import com.example.shop.repository.OrderRepository;
 import com.example.shop.repository.ProductRepository;
 import com.example.shop.repository.UserRepository;
+import com.example.shop.service.OrderSummaryProjector;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +31,8 @@ import java.math.BigDecimal;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -51,24 +59,36 @@ class OrderContractTest {
     @Autowired
     private OrderItemRepository orderItemRepository;
 
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderSummaryProjector orderSummaryProjector;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
     private String username;
+    private User user;
+    private Product product;
+    private Order order;
     private final String password = "User123@";
 
     @BeforeEach
     void setUpOrderFixture() {
         username = "contract_user_" + System.nanoTime();
 
-        User user = new User();
+        user = new User();
         user.setUsername(username);
         user.setEmail(username + "@example.com");
         user.setPassword(passwordEncoder.encode(password));
         user.setRole("USER");
         user = userRepository.save(user);
 
-        Product product = new Product();
+        product = new Product();
         product.setName("Mouse");
         product.setDescription("Wireless");
         product.setPrice(new BigDecimal("24.99"));
@@ -77,7 +97,7 @@ class OrderContractTest {
         product.setDetails("2.4G");
         product = productRepository.save(product);
 
-        Order order = new Order();
+        order = new Order();
         order.setUser(user);
         order.setStatus(Order.OrderStatus.PENDING);
         order.setTotalPrice(new BigDecimal("49.98"));
@@ -88,18 +108,88 @@ class OrderContractTest {
         item.setProduct(product);
         item.setQuantity(2);
         item.setUnitPrice(new BigDecimal("24.99"));
-        orderItemRepository.save(item);
+        orderItemRepository.saveAndFlush(item);
+        // The fixture bypasses OrderService, so its summary row comes from the startup backfill
+        orderSummaryProjector.backfill();
     }
 
     @Test
     void getOrders_shouldReturnFrontendCompatibleFields() throws Exception {
         mockMvc.perform(get("/api/orders").header("Authorization", userToken()))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$[0].id").exists())
-            .andExpect(jsonPath("$[0].totalPrice").exists())
-            .andExpect(jsonPath("$[0].orderItems[0].productName").exists())
-            .andExpect(jsonPath("$[0].orderItems[0].unitPrice").exists())
-            .andExpect(jsonPath("$[0].orderItems[0].productImageUrl").exists());
+            .andExpect(jsonPath("$[0].id").value(order.getId()))
+            .andExpect(jsonPath("$[0].totalPrice").value(49.98))
+            .andExpect(jsonPath("$[0].status").value("PENDING"))
+            .andExpect(jsonPath("$[0].itemCount").value(2))
+            .andExpect(jsonPath("$[0].productNames").value("Mouse"))
+            .andExpect(jsonPath("$[0].thumbnailUrl").value("https://img/mouse"))
+            .andExpect(jsonPath("$[0].createdAt").exists())
+            .andExpect(jsonPath("$[0].orderItems[0].productName").value("Mouse"))
+            .andExpect(jsonPath("$[0].orderItems[0].quantity").value(2))
+            .andExpect(jsonPath("$[0].orderItems[0].unitPrice").value(24.99));
+    }
+
+    @Test
+    void getOrders_shouldPageWithNextCursorHeader() throws Exception {
+        Order newer = new Order();
+        newer.setUser(user);
+        newer.setStatus(Order.OrderStatus.PENDING);
+        newer.setTotalPrice(new BigDecimal("9.99"));
+        newer = orderRepository.save(newer);
+        orderSummaryProjector.backfill();
+
+        String cursor = mockMvc.perform(get("/api/orders").param("limit", "1").header("Authorization", userToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value(newer.getId()))
+            .andExpect(header().exists(OrderController.NEXT_CURSOR_HEADER))
+            .andReturn().getResponse().getHeader(OrderController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/api/orders").param("limit", "1").param("cursor", cursor)
+                .header("Authorization", userToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value(order.getId()))
+            .andExpect(header().doesNotExist(OrderController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void getOrderById_shouldReturnFrontendCompatibleItemFields() throws Exception {
+        mockMvc.perform(get("/api/orders/" + order.getId()).header("Authorization", userToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(order.getId()))
+            .andExpect(jsonPath("$.orderItems[0].productName").value("Mouse"))
+            .andExpect(jsonPath("$.orderItems[0].unitPrice").exists())
+            .andExpect(jsonPath("$.orderItems[0].productImageUrl").value("https://img/mouse"));
+    }
+
+    @Test
+    void createOrder_shouldReplayRetriesWithSameIdempotencyKey() throws Exception {
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(3);
+        cartItemRepository.save(item);
+        String token = userToken();
+
+        MvcResult first = mockMvc.perform(post("/api/orders")
+                .header("Authorization", token)
+                .header("Idempotency-Key", "retry-me"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Idempotency-Replayed", "false"))
+            .andReturn();
+        MvcResult retry = mockMvc.perform(post("/api/orders")
+                .header("Authorization", token)
+                .header("Idempotency-Key", "retry-me"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Idempotency-Replayed", "true"))
+            .andReturn();
+
+        assertThat(retry.getResponse().getContentAsString()).isEqualTo(first.getResponse().getContentAsString());
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(97);
     }
 
     private String userToken() throws Exception {
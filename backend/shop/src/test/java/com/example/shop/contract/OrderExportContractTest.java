@@ -0,0 +1,209 @@
+package com.example.shop.contract;
+
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.service.OrderService;
+import com.example.shop.support.TestData;
+import com.example.shop.util.JwtTokenUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: the export streams on an async thread with its own transaction,
+// so fixtures must be committed and cleaned up explicitly.
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderExportContractTest {
+
+    // Far in the past, so the date range only matches this test's orders
+    private static final LocalDateTime DAY = LocalDateTime.of(2001, 3, 4, 0, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private Product pen;
+    private Product ink;
+
+    @BeforeEach
+    void setUp() {
+        pen = saveProduct("Export Pen", "4.00");
+        ink = saveProduct("Export Ink", "2.50");
+        User buyer = saveUser("USER");
+        Cart cart = new Cart();
+        cart.setUser(buyer);
+        cart = cartRepository.save(cart);
+        for (int hour = 0; hour < 3; hour++) {
+            addLine(cart, pen, 1);
+            addLine(cart, ink, 2);
+            Order order = orderService.createOrder(buyer);
+            jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?",
+                    Timestamp.valueOf(DAY.plusHours(hour)), order.getId());
+            orders.add(order);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, users);
+        productRepository.deleteById(pen.getId());
+        productRepository.deleteById(ink.getId());
+    }
+
+    @Test
+    void csvExport_shouldStreamOneLinePerItemInDateRange() throws Exception {
+        String body = export("csv", "from", DAY.toString(), "to", DAY.plusDays(1).toString());
+
+        String[] lines = body.split("\n");
+        assertThat(lines[0]).isEqualTo("order_id,user_id,status,order_total,created_at,updated_at,"
+                + "item_id,product_id,quantity,unit_price");
+        assertThat(lines).hasSize(1 + 2 * orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            assertThat(lines[1 + 2 * i]).startsWith(orders.get(i).getId() + ",");
+            assertThat(lines[1 + 2 * i]).contains(",PENDING,9.00,").endsWith("," + pen.getId() + ",1,4.00");
+            assertThat(lines[2 + 2 * i]).endsWith("," + ink.getId() + ",2,2.50");
+        }
+    }
+
+    @Test
+    void ndjsonExport_shouldResumeAfterWatermark() throws Exception {
+        Order first = orders.get(0);
+        String body = export("ndjson", "from", DAY.toString(), "to", DAY.plusDays(1).toString(),
+                "afterCreatedAt", DAY.toString(), "afterOrderId", String.valueOf(first.getId()));
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertThat(lines).hasSize(4);
+        assertThat(lines).extracting(line -> line.get("order_id").asLong())
+            .containsExactly(orders.get(1).getId(), orders.get(1).getId(), orders.get(2).getId(), orders.get(2).getId());
+        assertThat(lines.get(0).get("product_id").asLong()).isEqualTo(pen.getId());
+        assertThat(lines.get(1).get("unit_price").decimalValue()).isEqualByComparingTo("2.50");
+        assertThat(lines.get(0).get("order_total").decimalValue()).isEqualByComparingTo("9.00");
+    }
+
+    @Test
+    void export_shouldLeaveOutOrdersWithinTheCommitGrace() throws Exception {
+        Cart cart = cartRepository.findByUser(users.get(0)).orElseThrow();
+        addLine(cart, pen, 1);
+        Order recent = orderService.createOrder(users.get(0));
+
+        String body = export("csv", "from", DAY.toString());
+
+        assertThat(body.split("\n")).hasSize(1 + 2 * orders.size());
+        assertThat(body).doesNotContain("\n" + recent.getId() + ",");
+    }
+
+    @Test
+    void watermarkNeedsBothParts() throws Exception {
+        mockMvc.perform(get("/api/orders/admin/export")
+                .param("afterCreatedAt", DAY.toString())
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(saveUser("ADMIN"))))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_shouldRequireAdmin() throws Exception {
+        mockMvc.perform(get("/api/orders/admin/export")
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(users.get(0))))
+            .andExpect(status().isForbidden());
+    }
+
+    private String export(String format, String... params) throws Exception {
+        var request = get("/api/orders/admin/export")
+                .param("format", format)
+                .header("Authorization", "Bearer " + jwtTokenUtil.generateToken(saveUser("ADMIN")));
+        for (int i = 0; i < params.length; i += 2) {
+            request.param(params[i], params[i + 1]);
+        }
+        MvcResult started = mockMvc.perform(request)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(format.equals("csv") ? "text/csv" : "application/x-ndjson"))
+            .andReturn().getResponse().getContentAsString();
+    }
+
+    private User saveUser(String role) {
+        User user = new User();
+        user.setUsername("order_export_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole(role);
+        user = userRepository.save(user);
+        users.add(user);
+        return user;
+    }
+
+    private Product saveProduct(String name, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name);
+        product.setPrice(new BigDecimal(price));
+        product.setStock(50);
+        return productRepository.save(product);
+    }
+
+    private void addLine(Cart cart, Product product, int quantity) {
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        cartItemRepository.save(item);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.shop.contract;
+
+import com.example.shop.dto.OrderPlacementDto;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.service.AsyncOrderPlacementService;
+import com.example.shop.support.TestData;
+import com.example.shop.util.JwtTokenUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "shop.orders.async.enabled=true")
+@AutoConfigureMockMvc
+class OrderPlacementContractTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AsyncOrderPlacementService asyncOrderPlacementService;
+
+    private final List<User> users = new ArrayList<>();
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Queued Product");
+        product.setDescription("Placed in the background");
+        product.setPrice(new BigDecimal("12.00"));
+        product.setStock(5);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, users);
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void preferRespondAsync_shouldQueueAndCompleteOrder() throws Exception {
+        User buyer = buyerWithCart(2);
+
+        MvcResult accepted = mockMvc.perform(post("/api/orders")
+                .header("Authorization", token(buyer))
+                .header("Prefer", "respond-async"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Preference-Applied", "respond-async"))
+            .andExpect(jsonPath("$.handle").exists())
+            .andExpect(jsonPath("$.status").value("QUEUED"))
+            .andReturn();
+        String location = accepted.getResponse().getHeader("Location");
+
+        JsonNode placement = pollUntilDone(buyer, location);
+
+        assertThat(placement.get("status").asText()).isEqualTo("PENDING");
+        assertThat(placement.get("orderId").asLong()).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId()))
+            .isEqualTo(3);
+    }
+
+    @Test
+    void failedCheckout_shouldBeReportedOnHandle() throws Exception {
+        User buyer = buyerWithCart(9);
+
+        MvcResult accepted = mockMvc.perform(post("/api/orders")
+                .header("Authorization", token(buyer))
+                .header("Prefer", "respond-async"))
+            .andExpect(status().isAccepted())
+            .andReturn();
+
+        JsonNode placement = pollUntilDone(buyer, accepted.getResponse().getHeader("Location"));
+
+        assertThat(placement.get("status").asText()).isEqualTo("FAILED");
+        assertThat(placement.get("message").asText()).contains("Insufficient stock");
+    }
+
+    @Test
+    void handle_shouldOnlyBeVisibleToItsOwner() throws Exception {
+        User buyer = buyerWithCart(1);
+        User other = buyerWithCart(1);
+
+        MvcResult accepted = mockMvc.perform(post("/api/orders")
+                .header("Authorization", token(buyer))
+                .header("Prefer", "respond-async"))
+            .andExpect(status().isAccepted())
+            .andReturn();
+
+        mockMvc.perform(get(accepted.getResponse().getHeader("Location")).header("Authorization", token(other)))
+            .andExpect(status().isNotFound());
+        pollUntilDone(buyer, accepted.getResponse().getHeader("Location"));
+    }
+
+    @Test
+    void timedOutCheckout_shouldBePollableUntilItCommits() throws Exception {
+        User buyer = buyerWithCart(1);
+        Order order = new Order();
+        order.setId(4242L);
+        CompletableFuture<Order> checkout = new CompletableFuture<>();
+
+        OrderPlacementDto pending = asyncOrderPlacementService.track(buyer, checkout);
+        String location = "/api/orders/placements/" + pending.getHandle();
+        mockMvc.perform(get(location).header("Authorization", token(buyer)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("PROCESSING"));
+
+        checkout.complete(order);
+        mockMvc.perform(get(location).header("Authorization", token(buyer)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("PENDING"))
+            .andExpect(jsonPath("$.orderId").value(4242));
+    }
+
+    @Test
+    void emptyCart_shouldBeRejectedBeforeQueueing() throws Exception {
+        User buyer = buyerWithCart(0);
+
+        mockMvc.perform(post("/api/orders")
+                .header("Authorization", token(buyer))
+                .header("Prefer", "respond-async"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode pollUntilDone(User buyer, String location) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            MvcResult result = mockMvc.perform(get(location).header("Authorization", token(buyer)))
+                .andExpect(status().isOk())
+                .andReturn();
+            JsonNode placement = objectMapper.readTree(result.getResponse().getContentAsString());
+            String status = placement.get("status").asText();
+            if (!status.equals("QUEUED") && !status.equals("PROCESSING")) {
+                return placement;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Order placement did not finish: " + location);
+    }
+
+    private User buyerWithCart(int quantity) {
+        User user = new User();
+        user.setUsername("async_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+        users.add(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+        if (quantity > 0) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(quantity);
+            cartItemRepository.save(item);
+        }
+        return user;
+    }
+
+    private String token(User user) {
+        return "Bearer " + jwtTokenUtil.generateToken(user);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.shop.contract;
+
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ProductBatchContractTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUpCatalog() {
+        for (int i = 1; i <= 3; i++) {
+            Product product = new Product();
+            product.setName("Batch Product " + i);
+            product.setDescription("Batch description " + i);
+            product.setPrice(new BigDecimal("5.00").multiply(BigDecimal.valueOf(i)));
+            product.setStock(i);
+            products.add(productRepository.save(product));
+        }
+    }
+
+    @Test
+    void batchGet_shouldReturnRequestOrderAndMissingIds() throws Exception {
+        Long missingId = products.get(2).getId() + 1000;
+        String ids = products.get(2).getId() + "," + missingId + "," + products.get(0).getId();
+
+        mockMvc.perform(get("/api/products/batch").param("ids", ids))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.products.length()").value(2))
+            .andExpect(jsonPath("$.products[0].name").value("Batch Product 3"))
+            .andExpect(jsonPath("$.products[1].name").value("Batch Product 1"))
+            .andExpect(jsonPath("$.products[0].description").doesNotExist())
+            .andExpect(jsonPath("$.missingIds[0]").value(missingId));
+    }
+
+    @Test
+    void batchPost_shouldBePublicAndDeduplicateIds() throws Exception {
+        Long id = products.get(1).getId();
+
+        mockMvc.perform(post("/api/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + id + "," + id + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.products.length()").value(1))
+            .andExpect(jsonPath("$.products[0].id").value(id))
+            .andExpect(jsonPath("$.missingIds.length()").value(0));
+    }
+
+    @Test
+    void batchPost_shouldRejectOversizedIdSets() throws Exception {
+        String ids = LongStream.rangeClosed(1, 501).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        mockMvc.perform(post("/api/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + ids + "]"))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.shop.contract;
+
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.service.CatalogVersion;
+import com.example.shop.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ProductCatalogContractTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUpCatalog() {
+        for (int i = 1; i <= 3; i++) {
+            Product product = new Product();
+            product.setName("Catalog Product " + i);
+            product.setDescription("Long description " + i);
+            product.setPrice(new BigDecimal("10.00").multiply(BigDecimal.valueOf(i)));
+            product.setImageUrl("https://img/catalog-" + i);
+            product.setStock(i);
+            product.setDetails("Long details " + i);
+            products.add(productRepository.save(product));
+        }
+    }
+
+    @AfterEach
+    void removeCatalog() {
+        productRepository.deleteAllById(products.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void keysetPage_shouldReturnSlimRowsAndCursor() throws Exception {
+        Long afterId = products.get(0).getId() - 1;
+
+        mockMvc.perform(get("/api/products")
+                .param("after", String.valueOf(afterId))
+                .param("limit", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(2))
+            .andExpect(jsonPath("$.items[0].id").value(products.get(0).getId()))
+            .andExpect(jsonPath("$.items[0].name").value("Catalog Product 1"))
+            .andExpect(jsonPath("$.items[0].shortDescription").value("Long description 1"))
+            .andExpect(jsonPath("$.items[0].description").doesNotExist())
+            .andExpect(jsonPath("$.items[0].details").doesNotExist())
+            .andExpect(jsonPath("$.hasMore").value(true))
+            .andExpect(jsonPath("$.nextCursor").value(String.valueOf(products.get(1).getId())));
+    }
+
+    @Test
+    void keysetPage_shouldEndWithoutCursor() throws Exception {
+        mockMvc.perform(get("/api/products")
+                .param("after", String.valueOf(products.get(1).getId()))
+                .param("limit", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(1))
+            .andExpect(jsonPath("$.items[0].id").value(products.get(2).getId()))
+            .andExpect(jsonPath("$.hasMore").value(false))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void filteredListing_shouldPageThroughMatchesInPriceOrder() throws Exception {
+        String cursor = mockMvc.perform(get("/api/products")
+                .param("minPrice", "15")
+                .param("maxPrice", "30")
+                .param("inStock", "true")
+                .param("sort", "price_desc")
+                .param("limit", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(1))
+            .andExpect(jsonPath("$.items[0].id").value(products.get(2).getId()))
+            .andExpect(jsonPath("$.hasMore").value(true))
+            .andReturn().getResponse().getContentAsString()
+            .replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1");
+
+        mockMvc.perform(get("/api/products")
+                .param("minPrice", "15")
+                .param("maxPrice", "30")
+                .param("inStock", "true")
+                .param("sort", "price_desc")
+                .param("limit", "1")
+                .param("cursor", cursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(products.get(1).getId()))
+            .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void filteredListing_shouldRejectInvalidParameters() throws Exception {
+        mockMvc.perform(get("/api/products").param("sort", "popularity"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products").param("minPrice", "30").param("maxPrice", "10"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products").param("sort", "newest").param("cursor", "not-a-cursor"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products").param("sort", "price_asc").param("after", "42"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("after can only be used with sort=id; use cursor for other sorts"));
+    }
+
+    @Test
+    void newestListing_shouldPageThroughProductsWithoutCreationTime() throws Exception {
+        productRepository.flush();
+        for (Product product : products) {
+            jdbcTemplate.update("UPDATE products SET price = 4321.00, version = version + 1 WHERE id = ?",
+                    product.getId());
+        }
+        jdbcTemplate.update("UPDATE products SET created_at = NULL, version = version + 1 WHERE id IN (?, ?)",
+                products.get(0).getId(), products.get(2).getId());
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/products")
+                .param("minPrice", "4321")
+                .param("maxPrice", "4321")
+                .param("sort", "newest")
+                .param("limit", "1");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            seen.add(Long.valueOf(body.replaceAll(".*\"items\":\\[\\{\"id\":(\\d+).*", "$1")));
+            cursor = body.contains("\"nextCursor\":\"")
+                ? body.replaceAll(".*\"nextCursor\":\"([^\"]+)\".*", "$1")
+                : null;
+        } while (cursor != null && seen.size() < 5);
+
+        assertThat(seen).containsExactly(products.get(2).getId(), products.get(0).getId(), products.get(1).getId());
+    }
+
+    @Test
+    void catalogListing_shouldAnswerMatchingIfNoneMatchWith304() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products").param("limit", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products").param("limit", "2")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  // the version is bumped when the write commits
+    void catalogETag_shouldChangeWithProductWritesAndSeeWritesFromOtherInstances() throws Exception {
+        String eTag = catalogETag();
+        assertThat(catalogETag()).isEqualTo(eTag);
+
+        // A local write bumps the version in its own transaction
+        Product patch = new Product();
+        patch.setStock(9);
+        productService.updateProduct(products.get(0).getId(), patch);
+        String updated = catalogETag();
+        assertThat(updated).isNotEqualTo(eTag);
+
+        // Another instance writes a product: no local event, the shared version row still changes the tag
+        catalogVersion.bump();
+
+        String changed = catalogETag();
+        assertThat(changed).isNotEqualTo(updated);
+        mockMvc.perform(get("/api/products").param("limit", "2").header(HttpHeaders.IF_NONE_MATCH, updated))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/api/products").param("limit", "2").header(HttpHeaders.IF_NONE_MATCH, changed))
+            .andExpect(status().isNotModified());
+    }
+
+    private String catalogETag() throws Exception {
+        return mockMvc.perform(get("/api/products").param("limit", "2"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void productDetail_shouldRevalidateAgainstUpdatedAt() throws Exception {
+        Long id = products.get(0).getId();
+        String eTag = mockMvc.perform(get("/api/products/{id}", id))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products/{id}", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/products/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"product-stale\""))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Catalog Product 1"))
+            .andExpect(jsonPath("$.description").value("Long description 1"))
+            .andExpect(jsonPath("$.details").value("Long details 1"));
+    }
+
+    @Test
+    void fullListing_shouldTruncateDescriptionAndOmitDetails() throws Exception {
+        Product product = new Product();
+        product.setName("Verbose Product");
+        product.setDescription("x".repeat(1000));
+        product.setPrice(new BigDecimal("1.00"));
+        product.setDetails("y".repeat(1000));
+        Long id = productRepository.save(product).getId();
+
+        mockMvc.perform(get("/api/products"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[?(@.id == " + id + ")].shortDescription").value("x".repeat(160)))
+            .andExpect(jsonPath("$[?(@.id == " + id + ")].details").isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.shop.contract;
+
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: the export streams on an async thread with its own transaction,
+// so fixtures must be committed and cleaned up explicitly.
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductExportContractTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User admin;
+    private final String adminPassword = "Admin123@";
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        admin = new User();
+        admin.setUsername("export_admin_" + System.nanoTime());
+        admin.setEmail(admin.getUsername() + "@example.com");
+        admin.setPassword(passwordEncoder.encode(adminPassword));
+        admin.setRole("ADMIN");
+        admin = userRepository.save(admin);
+
+        products.add(productRepository.save(product("Export Lamp", "Warm, dimmable", "29.90")));
+        products.add(productRepository.save(product("Export Desk", "Standing desk", "399.50")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll(products);
+        userRepository.delete(admin);
+    }
+
+    @Test
+    void csvExport_shouldStreamEveryProduct() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/products/export")
+                .param("format", "csv")
+                .header("Authorization", adminToken()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("text/csv"))
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(body).startsWith("id,name,description,price");
+        assertThat(body).contains(products.get(0).getId() + ",Export Lamp,\"Warm, dimmable\",29.90");
+        assertThat(body).contains(products.get(1).getId() + ",Export Desk,Standing desk,399.50");
+    }
+
+    @Test
+    void export_shouldRequireAdmin() throws Exception {
+        mockMvc.perform(get("/api/products/export"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    private Product product(String name, String description, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(new BigDecimal(price));
+        product.setStock(3);
+        return product;
+    }
+
+    private String adminToken() throws Exception {
+        String loginRequest = """
+            {"username":"%s","password":"%s"}
+            """.formatted(admin.getUsername(), adminPassword);
+
+        MvcResult loginResult = mockMvc.perform(post("/api/users/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        JsonNode jsonNode = objectMapper.readTree(loginResult.getResponse().getContentAsString());
+        return "Bearer " + jsonNode.get("token").asText();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.shop.contract;
+
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ProductImportContractTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private String adminUsername;
+    private final String adminPassword = "Admin123@";
+
+    @BeforeEach
+    void setUp() {
+        adminUsername = "import_admin_" + System.nanoTime();
+
+        User admin = new User();
+        admin.setUsername(adminUsername);
+        admin.setEmail(adminUsername + "@example.com");
+        admin.setPassword(passwordEncoder.encode(adminPassword));
+        admin.setRole("ADMIN");
+        userRepository.save(admin);
+    }
+
+    @Test
+    void csvImport_shouldInsertValidRowsAndReportInvalidOnes() throws Exception {
+        String csv = """
+            name,description,price,image_url,stock,details
+            Import Lamp,"Warm light, dimmable",29.90,https://img/lamp,4,"Line one
+            line two"
+            Import Broken,No price,,,1,
+            Import Chair,Ergonomic chair,149.00,,12,
+            """;
+
+        mockMvc.perform(post("/api/products/import")
+                .contentType("text/csv")
+                .content(csv)
+                .header("Authorization", adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.received").value(3))
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.errors[0].row").value(2))
+            .andExpect(jsonPath("$.errors[0].message").value("price is required"));
+
+        Product lamp = findByName("Import Lamp");
+        assertThat(lamp.getDescription()).isEqualTo("Warm light, dimmable");
+        assertThat(lamp.getDetails()).isEqualTo("Line one\nline two");
+        assertThat(lamp.getStock()).isEqualTo(4);
+        assertThat(findByName("Import Chair").getPrice()).isEqualByComparingTo("149.00");
+    }
+
+    @Test
+    void ndjsonImport_shouldReportMalformedLines() throws Exception {
+        String ndjson = """
+            {"name":"Import Desk","description":"Standing desk","price":399.5,"stock":2}
+            {"name":"Import Bad"
+            {"name":"Import Mat","description":"Desk mat","price":"-1"}
+            """;
+
+        mockMvc.perform(post("/api/products/import")
+                .contentType("application/x-ndjson")
+                .content(ndjson)
+                .header("Authorization", adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.failed").value(2))
+            .andExpect(jsonPath("$.errors[0].row").value(2))
+            .andExpect(jsonPath("$.errors[1].row").value(3));
+
+        assertThat(findByName("Import Desk").getStock()).isEqualTo(2);
+    }
+
+    @Test
+    void csvImport_shouldRejectMissingHeaderColumns() throws Exception {
+        mockMvc.perform(post("/api/products/import")
+                .contentType("text/csv")
+                .content("title,cost\nLamp,1.00\n")
+                .header("Authorization", adminToken()))
+            .andExpect(status().isBadRequest());
+    }
+
+    private Product findByName(String name) {
+        List<Product> matches = productRepository.findAll().stream()
+                .filter(product -> name.equals(product.getName()))
+                .toList();
+        assertThat(matches).hasSize(1);
+        return matches.get(0);
+    }
+
+    private String adminToken() throws Exception {
+        String loginRequest = """
+            {"username":"%s","password":"%s"}
+            """.formatted(adminUsername, adminPassword);
+
+        MvcResult loginResult = mockMvc.perform(post("/api/users/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(loginRequest))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        JsonNode jsonNode = objectMapper.readTree(loginResult.getResponse().getContentAsString());
+        return "Bearer " + jsonNode.get("token").asText();
+    }
+}
@@ -4,6 +4,8 @@ import com.example.shop.model.Order;
 import com.example.shop.model.User;
 import com.example.shop.repository.OrderRepository;
 import com.example.shop.repository.UserRepository;
+import com.example.shop.service.OrderService;
+import com.example.shop.service.OrderSummaryProjector;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +20,12 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -41,12 +49,16 @@ class AdminOrderControllerTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderSummaryProjector orderSummaryProjector;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
     private String adminUsername;
     private final String adminPassword = "Admin123@";
     private Long orderId;
+    private User customer;
 
     @BeforeEach
     void setUp() {
@@ -59,7 +71,7 @@ class AdminOrderControllerTest {
         admin.setRole("ADMIN");
         userRepository.save(admin);
 
-        User customer = new User();
+        customer = new User();
         customer.setUsername("customer_" + System.nanoTime());
         customer.setEmail(customer.getUsername() + "@example.com");
         customer.setPassword(passwordEncoder.encode("User123@"));
@@ -72,6 +84,8 @@ class AdminOrderControllerTest {
         order.setStatus(Order.OrderStatus.PAID);
         order = orderRepository.save(order);
         orderId = order.getId();
+        // Orders saved through the repository get their summary rows from the backfill
+        orderSummaryProjector.backfill();
     }
 
     @Test
@@ -81,6 +95,103 @@ class AdminOrderControllerTest {
                 .header("Authorization", adminToken()))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.status").value("SHIPPED"));
+
+        mockMvc.perform(get("/api/orders/admin")
+                .param("userId", String.valueOf(customer.getId()))
+                .header("Authorization", adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(orderId))
+            .andExpect(jsonPath("$.items[0].status").value("SHIPPED"));
+    }
+
+    @Test
+    void adminOrderPage_shouldFilterCountAndFollowCursor() throws Exception {
+        List<Long> pendingIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Order order = new Order();
+            order.setUser(customer);
+            order.setTotalPrice(new BigDecimal("5.00"));
+            order.setStatus(Order.OrderStatus.PENDING);
+            pendingIds.add(orderRepository.save(order).getId());
+        }
+        orderSummaryProjector.backfill();
+        String token = adminToken();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult result = mockMvc.perform(get("/api/orders/admin")
+                    .param("userId", String.valueOf(customer.getId()))
+                    .param("status", "PENDING")
+                    .param("limit", "2")
+                    .param("count", "true")
+                    .param("cursor", cursor == null ? "" : cursor)
+                    .header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalCount").value(5))
+                .andExpect(jsonPath("$.totalCountCapped").value(false))
+                .andReturn();
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+            page.get("items").forEach(item -> {
+                assertThat(item.get("status").asText()).isEqualTo("PENDING");
+                seen.add(item.get("id").asLong());
+            });
+            cursor = page.get("hasMore").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        // 同一时间创建的订单按 id 倒序
+        assertThat(seen).containsExactlyInAnyOrderElementsOf(pendingIds).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void adminOrderList_withoutParameters_shouldReturnBoundedFirstPage() throws Exception {
+        for (int i = 0; i < OrderService.DEFAULT_PAGE_SIZE; i++) {
+            Order order = new Order();
+            order.setUser(customer);
+            order.setTotalPrice(new BigDecimal("3.00"));
+            order.setStatus(Order.OrderStatus.PENDING);
+            orderRepository.save(order);
+        }
+        orderSummaryProjector.backfill();
+
+        mockMvc.perform(get("/api/orders/admin")
+                .header("Authorization", adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(OrderService.DEFAULT_PAGE_SIZE))
+            .andExpect(jsonPath("$.hasMore").value(true))
+            .andExpect(jsonPath("$.nextCursor").isNotEmpty());
+    }
+
+    @Test
+    void adminOrderPage_shouldOmitCountUnlessRequested() throws Exception {
+        mockMvc.perform(get("/api/orders/admin")
+                .param("userId", String.valueOf(customer.getId()))
+                .header("Authorization", adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(orderId))
+            .andExpect(jsonPath("$.hasMore").value(false))
+            .andExpect(jsonPath("$.totalCount").doesNotExist());
+    }
+
+    @Test
+    void adminAggregates_shouldReturnStatusCountsAndRollingBuckets() throws Exception {
+        mockMvc.perform(get("/api/orders/admin/aggregates")
+                .header("Authorization", adminToken()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.ordersByStatus.PENDING").isNumber())
+            .andExpect(jsonPath("$.revenuePerMinute.length()").value(60))
+            .andExpect(jsonPath("$.revenuePerHour.length()").value(24))
+            .andExpect(jsonPath("$.revenuePerDay.length()").value(30))
+            .andExpect(jsonPath("$.averageOrderValue").exists());
+    }
+
+    @Test
+    void adminOrderPage_shouldRejectInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/orders/admin")
+                .param("cursor", "not-a-cursor")
+                .header("Authorization", adminToken()))
+            .andExpect(status().isBadRequest());
     }
 
     private String adminToken() throws Exception {
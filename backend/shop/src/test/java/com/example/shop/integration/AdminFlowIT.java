@@ -4,6 +4,7 @@ import com.example.shop.model.Order;
 import com.example.shop.model.User;
 import com.example.shop.repository.OrderRepository;
 import com.example.shop.repository.UserRepository;
+import com.example.shop.service.OrderSummaryProjector;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -43,6 +44,9 @@ class AdminFlowIT {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderSummaryProjector orderSummaryProjector;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -74,6 +78,8 @@ class AdminFlowIT {
         order.setTotalPrice(new BigDecimal("120.00"));
         order = orderRepository.save(order);
         orderId = order.getId();
+        // Orders saved through the repository get their summary rows from the backfill
+        orderSummaryProjector.backfill();
     }
 
     @Test
@@ -83,7 +89,7 @@ class AdminFlowIT {
         mockMvc.perform(get("/api/orders/admin")
                 .header("Authorization", adminToken))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$[*].id", hasItem(orderId.intValue())));
+            .andExpect(jsonPath("$.items[*].id", hasItem(orderId.intValue())));
 
         mockMvc.perform(put("/api/orders/admin/{id}/status", orderId)
                 .param("status", "SHIPPED")
@@ -0,0 +1,260 @@
+package com.example.shop.service;
+
+import com.example.shop.exception.CheckoutPendingException;
+import com.example.shop.exception.ServiceUnavailableException;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "shop.checkout.batching.enabled=true",
+        "shop.checkout.batching.max-batch-size=8",
+        "shop.checkout.batching.window-ms=200"
+})
+class CheckoutBatcherTest {
+
+    private static final int BUYERS = 6;
+    private static final int STOCK = 4;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<User> buyers = new ArrayList<>();
+    private Product product;
+    private Product accessory;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Batched Product");
+        product.setDescription("Committed together");
+        product.setPrice(new BigDecimal("8.00"));
+        product.setStock(STOCK);
+        product = productRepository.save(product);
+
+        accessory = new Product();
+        accessory.setName("Batched Accessory");
+        accessory.setDescription("Plenty");
+        accessory.setPrice(new BigDecimal("1.50"));
+        accessory.setStock(100);
+        accessory = productRepository.save(accessory);
+
+        for (int i = 0; i < BUYERS; i++) {
+            User user = new User();
+            user.setUsername("batch_user_" + i + "_" + System.nanoTime());
+            user.setEmail(user.getUsername() + "@example.com");
+            user.setPassword("not-used");
+            user.setRole("USER");
+            user = userRepository.save(user);
+            buyers.add(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart = cartRepository.save(cart);
+
+            for (Product line : List.of(accessory, product)) {
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(line);
+                item.setQuantity(1);
+                cartItemRepository.save(item);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, buyers);
+        productRepository.deleteById(product.getId());
+        productRepository.deleteById(accessory.getId());
+    }
+
+    @Test
+    void concurrentCheckouts_shouldShareTransactionsAndFailIndividually() throws Exception {
+        long batchesBefore = batchSizes().count();
+        double checkoutsBefore = batchSizes().totalAmount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Order>> results = new ArrayList<>();
+        for (User buyer : buyers) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return checkoutBatcher.checkout(buyer, null);
+                } catch (RuntimeException ex) {
+                    assertThat(ex.getMessage()).contains("Insufficient stock: Batched Product");
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Order> result : results) {
+            Order order = result.get(30, TimeUnit.SECONDS);
+            if (order != null) {
+                assertThat(order.getId()).isNotNull();
+                assertThat(order.getTotalPrice()).isEqualByComparingTo("9.50");
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(succeeded).isEqualTo(STOCK);
+        assertThat(stock(product)).isZero();
+        assertThat(stock(accessory)).isEqualTo(100 - STOCK);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items WHERE product_id IN (?, ?)",
+                Integer.class, product.getId(), accessory.getId())).isEqualTo(2 * STOCK);
+        assertThat(batchSizes().totalAmount() - checkoutsBefore).isEqualTo(BUYERS);
+        assertThat(batchSizes().count() - batchesBefore).isLessThan(BUYERS);
+    }
+
+    @Test
+    void errorInBatch_shouldFailThatBatchAndKeepDispatching() {
+        OrderService orderService = mock(OrderService.class);
+        Order order = new Order();
+        when(orderService.createOrders(anyList()))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(List.of(new OrderService.CheckoutResult(order, null)));
+        CheckoutBatcher batcher = standaloneBatcher(orderService, 5_000);
+        try {
+            assertThatThrownBy(() -> batcher.checkout(buyers.get(0), null))
+                    .isInstanceOf(ServiceUnavailableException.class);
+            assertThat(batcher.checkout(buyers.get(1), null)).isSameAs(order);
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void slowBatch_shouldHandBackThePendingCheckoutOnTimeout() throws Exception {
+        OrderService orderService = mock(OrderService.class);
+        Order order = new Order();
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrders(anyList())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return List.of(new OrderService.CheckoutResult(order, null));
+        });
+        CheckoutBatcher batcher = standaloneBatcher(orderService, 100);
+        try {
+            CheckoutPendingException pending = catchThrowableOfType(
+                    () -> batcher.checkout(buyers.get(0), null), CheckoutPendingException.class);
+            assertThat(pending.getCheckout()).isNotDone();
+
+            release.countDown();
+            assertThat(pending.getCheckout().get(5, TimeUnit.SECONDS)).isSameAs(order);
+        } finally {
+            release.countDown();
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void rolledBackBatchAfterTimeout_shouldStillPlaceTheOrder() throws Exception {
+        OrderService orderService = mock(OrderService.class);
+        Order order = new Order();
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrders(anyList())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            throw new IllegalStateException("batch rolled back");
+        });
+        when(orderService.createOrder(any(User.class), any())).thenReturn(order);
+        CheckoutBatcher batcher = standaloneBatcher(orderService, 100);
+        try {
+            CheckoutPendingException pending = catchThrowableOfType(
+                    () -> batcher.checkout(buyers.get(0), null), CheckoutPendingException.class);
+
+            release.countDown();
+            assertThat(pending.getCheckout().get(5, TimeUnit.SECONDS)).isSameAs(order);
+        } finally {
+            release.countDown();
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void rolledBackBatch_shouldPlaceEachOrderOnTheCallerThread() {
+        OrderService orderService = mock(OrderService.class);
+        Order order = new Order();
+        AtomicReference<String> placedOn = new AtomicReference<>();
+        when(orderService.createOrders(anyList())).thenThrow(new IllegalStateException("batch rolled back"));
+        when(orderService.createOrder(any(User.class), any())).thenAnswer(invocation -> {
+            placedOn.set(Thread.currentThread().getName());
+            return order;
+        });
+        CheckoutBatcher batcher = standaloneBatcher(orderService, 5_000);
+        try {
+            assertThat(batcher.checkout(buyers.get(0), null)).isSameAs(order);
+            assertThat(placedOn.get()).isEqualTo(Thread.currentThread().getName());
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    private CheckoutBatcher standaloneBatcher(OrderService orderService, long timeoutMillis) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new CheckoutBatcher(orderService, new ProductContentionPolicy(registry, 1, 0), registry,
+                true, 8, 5, timeoutMillis);
+    }
+
+    private int stock(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+
+    private DistributionSummary batchSizes() {
+        return meterRegistry.get("shop.checkout.batch.size").summary();
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.shop.service;
+
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "shop.stock.hot-skus.enabled=true",
+        "shop.stock.hot-skus.stripes=4",
+        "shop.stock.hot-skus.flush-interval-ms=3600000"
+})
+class HotSkuReservationEngineTest {
+
+    private static final int BUYERS = 6;
+    private static final int STOCK = 4;
+
+    @Autowired
+    private HotSkuReservationEngine engine;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> buyers = new ArrayList<>();
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Flash Sale Product");
+        product.setDescription("Limited drop");
+        product.setPrice(new BigDecimal("20.00"));
+        product.setStock(STOCK);
+        product = productRepository.save(product);
+        engine.track(product.getId());
+
+        for (int i = 0; i < BUYERS; i++) {
+            User user = new User();
+            user.setUsername("hot_user_" + i + "_" + System.nanoTime());
+            user.setEmail(user.getUsername() + "@example.com");
+            user.setPassword("not-used");
+            user.setRole("USER");
+            user = userRepository.save(user);
+            buyers.add(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart = cartRepository.save(cart);
+
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(1);
+            cartItemRepository.save(item);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, buyers);
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+        engine.onProductChanged(ProductChangedEvent.of(ProductChangedEvent.Type.DELETED, product.getId()));
+    }
+
+    @Test
+    void checkout_shouldReserveInMemoryAndFlushInBatches() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (User buyer : buyers) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(buyer);
+                    return true;
+                } catch (RuntimeException ex) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(succeeded).isEqualTo(STOCK);
+        assertThat(engine.available(product.getId())).isZero();
+        assertThat(engine.unflushed(product.getId())).isEqualTo(STOCK);
+        assertThat(persistedStock()).isEqualTo(STOCK);
+
+        assertThat(engine.flush()).isEqualTo(STOCK);
+
+        assertThat(persistedStock()).isZero();
+        assertThat(engine.unflushed(product.getId())).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_items WHERE product_id = ? AND stock_pending = TRUE",
+                Integer.class, product.getId())).isZero();
+    }
+
+    @Test
+    void rolledBackReservation_shouldBeReleased() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(engine.reserve(product.getId(), 3)).isTrue();
+            assertThat(engine.available(product.getId())).isEqualTo(STOCK - 3);
+            status.setRollbackOnly();
+        });
+
+        assertThat(engine.available(product.getId())).isEqualTo(STOCK);
+        assertThat(engine.unflushed(product.getId())).isZero();
+    }
+
+    @Test
+    void reservation_shouldGatherStockSpreadAcrossStripes() {
+        // 4 units over 4 stripes: no single stripe can serve 3 units
+        assertThat(engine.reserve(product.getId(), 3)).isTrue();
+        assertThat(engine.reserve(product.getId(), 2)).isFalse();
+        assertThat(engine.available(product.getId())).isEqualTo(1);
+        assertThat(engine.unflushed(product.getId())).isEqualTo(3);
+    }
+
+    @Test
+    void resyncDuringReservations_shouldNeverOversell() throws Exception {
+        int stock = 20_000;
+        jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", stock, product.getId());
+        engine.onProductChanged(ProductChangedEvent.of(ProductChangedEvent.Type.UPDATED, product.getId()));
+
+        int reservers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(reservers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < reservers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int reserved = 0;
+                while (engine.reserve(product.getId(), 1)) {
+                    reserved++;
+                }
+                return reserved;
+            }));
+        }
+        AtomicBoolean selling = new AtomicBoolean(true);
+        Future<?> resyncs = executor.submit(() -> {
+            start.await();
+            while (selling.get()) {
+                engine.onProductChanged(ProductChangedEvent.of(ProductChangedEvent.Type.UPDATED, product.getId()));
+            }
+            return null;
+        });
+        start.countDown();
+        int sold = 0;
+        for (Future<Integer> result : results) {
+            sold += result.get(60, TimeUnit.SECONDS);
+        }
+        selling.set(false);
+        resyncs.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(sold).isEqualTo(stock);
+        assertThat(engine.available(product.getId())).isZero();
+        assertThat(engine.unflushed(product.getId())).isEqualTo(stock);
+    }
+
+    @Test
+    void flush_shouldApplyJournalLeftBehindByAnEarlierRun() {
+        Long orderId = orderService.createOrder(buyers.get(0)).getId();
+        // Simulates an order committed by a previous process that died before writing stock back
+        jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, unit_price, stock_pending) "
+                + "VALUES (?, ?, 2, 20.00, TRUE)", orderId, product.getId());
+
+        assertThat(engine.flush()).isEqualTo(2);
+        assertThat(persistedStock()).isEqualTo(STOCK - 3);
+    }
+
+    private int persistedStock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
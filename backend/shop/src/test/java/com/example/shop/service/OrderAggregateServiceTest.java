@@ -0,0 +1,219 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.OrderAggregatesDto;
+import com.example.shop.dto.SalesBucketDto;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.OrderSummary;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dashboard aggregates follow committed checkouts and cancellations, and a rebuild from the database
+ * arrives at the same numbers.
+ */
+@SpringBootTest
+class OrderAggregateServiceTest {
+
+    @Autowired
+    private OrderAggregateService orderAggregateService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("aggregate_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+
+        product = new Product();
+        product.setName("Aggregate Lamp");
+        product.setDescription("Counted");
+        product.setPrice(new BigDecimal("12.50"));
+        product.setStock(10);
+        product = productRepository.save(product);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(3);
+        cartItemRepository.save(item);
+
+        orderAggregateService.rebuild(LocalDateTime.now());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, List.of(user));
+        productRepository.deleteById(product.getId());
+        orderAggregateService.rebuild(LocalDateTime.now());
+    }
+
+    @Test
+    void placedAndCancelledOrders_shouldMoveTheCounters() {
+        OrderAggregatesDto before = orderAggregateService.getAggregates(LocalDateTime.now());
+
+        Order order = orderService.createOrder(user);
+        OrderAggregatesDto placed = orderAggregateService.getAggregates(LocalDateTime.now());
+
+        assertThat(placed.getOrdersByStatus().get(Order.OrderStatus.PENDING))
+            .isEqualTo(before.getOrdersByStatus().get(Order.OrderStatus.PENDING) + 1);
+        for (Function<OrderAggregatesDto, List<SalesBucketDto>> window : windows()) {
+            assertThat(orders(window.apply(placed)) - orders(window.apply(before))).isEqualTo(1);
+            assertThat(items(window.apply(placed)) - items(window.apply(before))).isEqualTo(3);
+            assertThat(revenue(window.apply(placed)).subtract(revenue(window.apply(before))))
+                .isEqualByComparingTo("37.50");
+        }
+        assertThat(placed.getRevenuePerMinute()).hasSize(60);
+        assertThat(placed.getRevenuePerHour()).hasSize(24);
+        assertThat(placed.getRevenuePerDay()).hasSize(30);
+
+        orderService.updateOrderStatus(order.getId(), Order.OrderStatus.CANCELLED);
+        OrderAggregatesDto cancelled = orderAggregateService.getAggregates(LocalDateTime.now());
+
+        assertThat(cancelled.getOrdersByStatus().get(Order.OrderStatus.PENDING))
+            .isEqualTo(before.getOrdersByStatus().get(Order.OrderStatus.PENDING));
+        assertThat(cancelled.getOrdersByStatus().get(Order.OrderStatus.CANCELLED))
+            .isEqualTo(before.getOrdersByStatus().get(Order.OrderStatus.CANCELLED) + 1);
+        for (Function<OrderAggregatesDto, List<SalesBucketDto>> window : windows()) {
+            assertThat(orders(window.apply(cancelled))).isEqualTo(orders(window.apply(before)));
+            assertThat(revenue(window.apply(cancelled))).isEqualByComparingTo(revenue(window.apply(before)));
+        }
+    }
+
+    @Test
+    void rebuild_shouldMatchTheLiveCounters() {
+        orderService.createOrder(user);
+        LocalDateTime now = LocalDateTime.now();
+        OrderAggregatesDto live = orderAggregateService.getAggregates(now);
+
+        orderAggregateService.rebuild(now);
+        OrderAggregatesDto rebuilt = orderAggregateService.getAggregates(now);
+
+        assertThat(rebuilt).isEqualTo(live);
+        assertThat(rebuilt.getAverageOrderValue()).isPositive();
+    }
+
+    @Test
+    void changesCommittedDuringRebuild_shouldBeCountedOnce() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        OrderSummary seen = new OrderSummary(1L, 7L, Order.OrderStatus.PENDING, new BigDecimal("10.00"), 1,
+            "Seen", null, now, now);
+        OrderSummary missed = new OrderSummary(2L, 7L, Order.OrderStatus.PENDING, new BigDecimal("5.00"), 2,
+            "Missed", null, now, now);
+        NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+        OrderAggregateService service = new OrderAggregateService(jdbc,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), 60, 24, 30);
+
+        // While the snapshot is read, both orders commit and the first one is paid; the snapshot only
+        // contains the first order, still PENDING
+        doAnswer(invocation -> {
+            service.recordPlaced(List.of(seen, missed));
+            service.recordStatusChange(List.of(seen), Order.OrderStatus.PENDING, Order.OrderStatus.PAID);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("status")).thenReturn("PENDING");
+            when(rs.getLong("orders")).thenReturn(1L);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbc).query(argThat((String sql) -> sql.contains("GROUP BY")), any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(now));
+            when(rs.getBigDecimal("total_price")).thenReturn(seen.getTotalPrice());
+            when(rs.getInt("item_count")).thenReturn(seen.getItemCount());
+            invocation.<RowCallbackHandler>getArgument(2).processRow(rs);
+            return null;
+        }).when(jdbc).query(argThat((String sql) -> sql.contains("created_at >=")), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("order_id")).thenReturn(seen.getOrderId());
+            when(rs.getString("status")).thenReturn("PENDING");
+            invocation.<RowCallbackHandler>getArgument(2).processRow(rs);
+            return null;
+        }).when(jdbc).query(argThat((String sql) -> sql.contains("order_id IN")), any(SqlParameterSource.class),
+            any(RowCallbackHandler.class));
+
+        service.rebuild(now);
+        OrderAggregatesDto aggregates = service.getAggregates(now);
+
+        assertThat(aggregates.getOrdersByStatus().get(Order.OrderStatus.PENDING)).isEqualTo(1);
+        assertThat(aggregates.getOrdersByStatus().get(Order.OrderStatus.PAID)).isEqualTo(1);
+        assertThat(orders(aggregates.getRevenuePerHour())).isEqualTo(2);
+        assertThat(items(aggregates.getRevenuePerHour())).isEqualTo(3);
+        assertThat(revenue(aggregates.getRevenuePerHour())).isEqualByComparingTo("15.00");
+    }
+
+    private static List<Function<OrderAggregatesDto, List<SalesBucketDto>>> windows() {
+        return List.of(OrderAggregatesDto::getRevenuePerMinute, OrderAggregatesDto::getRevenuePerHour,
+            OrderAggregatesDto::getRevenuePerDay);
+    }
+
+    private static long orders(List<SalesBucketDto> buckets) {
+        return buckets.stream().mapToLong(SalesBucketDto::getOrders).sum();
+    }
+
+    private static long items(List<SalesBucketDto> buckets) {
+        return buckets.stream().mapToLong(SalesBucketDto::getItems).sum();
+    }
+
+    private static BigDecimal revenue(List<SalesBucketDto> buckets) {
+        return buckets.stream().map(SalesBucketDto::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
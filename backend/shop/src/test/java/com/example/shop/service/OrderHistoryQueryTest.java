@@ -0,0 +1,157 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.OrderDto;
+import com.example.shop.dto.OrderItemDto;
+import com.example.shop.dto.OrderSummaryDto;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A page of order history is read from the order summary table plus one query for its items, however many
+ * orders the user has; the detail of one order is assembled from two.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderHistoryQueryTest {
+
+    private static final int ORDERS = 12;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Product mug;
+    private Product tea;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("history_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+
+        mug = saveProduct("History Mug", "6.50");
+        tea = saveProduct("History Tea", "3.25");
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+        for (int i = 0; i < ORDERS; i++) {
+            addLine(cart, mug, 1);
+            addLine(cart, tea, 2);
+            orderService.createOrder(user);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, List.of(user));
+        productRepository.deleteById(mug.getId());
+        productRepository.deleteById(tea.getId());
+    }
+
+    @Test
+    void getOrdersByUser_shouldReadFirstPageWithItemsInTwoQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<OrderSummaryDto> orders = orderService.getOrdersByUser(user, null, null).getItems();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(orders).extracting(OrderSummaryDto::getId).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+        for (OrderSummaryDto order : orders) {
+            assertThat(order.getTotalPrice()).isEqualByComparingTo("13.00");
+            assertThat(order.getItemCount()).isEqualTo(3);
+            assertThat(order.getProductNames()).isEqualTo("History Mug, History Tea");
+            assertThat(order.getStatus()).isEqualTo(Order.OrderStatus.PENDING);
+            assertThat(order.getOrderItems()).extracting(OrderItemDto::getProductName)
+                    .containsExactly("History Mug", "History Tea");
+        }
+    }
+
+    @Test
+    void getOrderById_shouldAttachItemsWithOneMoreQuery() {
+        Long orderId = orderService.getOrdersByUser(user, null, null).getItems().get(0).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        OrderDto order = orderService.getOrderById(user, orderId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(order.getOrderItems()).extracting(OrderItemDto::getProductName)
+            .containsExactlyInAnyOrder("History Mug", "History Tea");
+        assertThat(order.getOrderItems()).extracting(OrderItemDto::getOrderId).containsOnly(orderId);
+        assertThat(order.getOrderItems().stream().map(OrderItemDto::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add))
+            .isEqualByComparingTo("13.00");
+    }
+
+    @Test
+    void statusChanges_shouldBeVisibleInTheSummary() {
+        Long orderId = orderService.getOrdersByUser(user, null, null).getItems().get(0).getId();
+
+        orderService.updateOrderStatus(orderId, Order.OrderStatus.PAID);
+
+        assertThat(orderService.getOrdersByUser(user, null, null).getItems().get(0))
+            .extracting(OrderSummaryDto::getId, OrderSummaryDto::getStatus)
+            .containsExactly(orderId, Order.OrderStatus.PAID);
+    }
+
+    private Product saveProduct(String name, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name);
+        product.setPrice(new BigDecimal(price));
+        product.setStock(100);
+        return productRepository.save(product);
+    }
+
+    private void addLine(Cart cart, Product product, int quantity) {
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        cartItemRepository.save(item);
+    }
+}
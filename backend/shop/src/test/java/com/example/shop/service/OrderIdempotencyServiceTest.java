@@ -0,0 +1,160 @@
+package com.example.shop.service;
+
+import com.example.shop.exception.BadRequestException;
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class OrderIdempotencyServiceTest {
+
+    private static final int RETRIES = 6;
+
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Retried Product");
+        product.setDescription("Bought once");
+        product.setPrice(new BigDecimal("15.00"));
+        product.setStock(10);
+        product = productRepository.save(product);
+
+        user = new User();
+        user.setUsername("retry_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(2);
+        cartItemRepository.save(item);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, List.of(user));
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void concurrentRetries_shouldPlaceOneOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(RETRIES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrderIdempotencyService.Placement>> results = new ArrayList<>();
+        for (int i = 0; i < RETRIES; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return orderIdempotencyService.placeOrder(user, "checkout-1");
+            }));
+        }
+        start.countDown();
+
+        List<Long> orderIds = new ArrayList<>();
+        int replayed = 0;
+        for (Future<OrderIdempotencyService.Placement> result : results) {
+            OrderIdempotencyService.Placement placement = result.get(30, TimeUnit.SECONDS);
+            orderIds.add(placement.order().getId());
+            if (placement.replayed()) {
+                replayed++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(orderIds).containsOnly(orderIds.get(0));
+        assertThat(replayed).isEqualTo(RETRIES - 1);
+        assertThat(ordersPlaced()).isEqualTo(1);
+        assertThat(persistedStock()).isEqualTo(8);
+    }
+
+    @Test
+    void replay_shouldFallBackToKeyStoredOnOrder() {
+        Long orderId = orderIdempotencyService.placeOrder(user, "checkout-2").order().getId();
+        // Simulates a restart: only the key persisted with the order is left
+        jdbcTemplate.update("UPDATE orders SET idempotency_key = 'checkout-3' WHERE id = ?", orderId);
+
+        OrderIdempotencyService.Placement replay = orderIdempotencyService.placeOrder(user, "checkout-3");
+
+        assertThat(replay.replayed()).isTrue();
+        assertThat(replay.order().getId()).isEqualTo(orderId);
+        assertThat(ordersPlaced()).isEqualTo(1);
+    }
+
+    @Test
+    void failedPlacement_shouldNotBeRemembered() {
+        jdbcTemplate.update("UPDATE products SET stock = 1 WHERE id = ?", product.getId());
+        assertThatThrownBy(() -> orderIdempotencyService.placeOrder(user, "checkout-4"))
+            .hasMessageContaining("Insufficient stock");
+
+        jdbcTemplate.update("UPDATE products SET stock = 5 WHERE id = ?", product.getId());
+        OrderIdempotencyService.Placement retry = orderIdempotencyService.placeOrder(user, "checkout-4");
+
+        assertThat(retry.replayed()).isFalse();
+        assertThat(persistedStock()).isEqualTo(3);
+    }
+
+    @Test
+    void oversizedKey_shouldBeRejected() {
+        assertThatThrownBy(() -> orderIdempotencyService.placeOrder(user, "k".repeat(101)))
+            .isInstanceOf(BadRequestException.class);
+    }
+
+    private int ordersPlaced() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class, user.getId());
+    }
+
+    private int persistedStock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
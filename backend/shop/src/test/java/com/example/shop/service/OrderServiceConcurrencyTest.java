@@ -0,0 +1,189 @@
+package com.example.shop.service;
+
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "shop.checkout.lock-timeout-ms=500")
+class OrderServiceConcurrencyTest {
+
+    private static final int BUYERS = 8;
+    private static final int STOCK = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<User> buyers = new ArrayList<>();
+    private Product product;
+    private Product accessory;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Contended Product");
+        product.setDescription("Few left");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStock(STOCK);
+        product = productRepository.save(product);
+
+        accessory = new Product();
+        accessory.setName("Plentiful Accessory");
+        accessory.setDescription("Always in stock");
+        accessory.setPrice(new BigDecimal("2.00"));
+        accessory.setStock(1000);
+        accessory = productRepository.save(accessory);
+
+        for (int i = 0; i < BUYERS; i++) {
+            User user = new User();
+            user.setUsername("race_user_" + i + "_" + System.nanoTime());
+            user.setEmail(user.getUsername() + "@example.com");
+            user.setPassword("not-used");
+            user.setRole("USER");
+            user = userRepository.save(user);
+            buyers.add(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart = cartRepository.save(cart);
+
+            // Half of the carts list the two products in the opposite order
+            List<Product> lines = i % 2 == 0 ? List.of(product, accessory) : List.of(accessory, product);
+            for (Product line : lines) {
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(line);
+                item.setQuantity(1);
+                cartItemRepository.save(item);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, buyers);
+        productRepository.deleteById(product.getId());
+        productRepository.deleteById(accessory.getId());
+    }
+
+    @Test
+    void concurrentCheckouts_shouldNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (User buyer : buyers) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(buyer);
+                    return true;
+                } catch (RuntimeException ex) {
+                    assertThat(ex.getMessage()).contains("Insufficient stock");
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(succeeded).isEqualTo(STOCK);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isZero();
+        assertThat(productRepository.findById(accessory.getId()).orElseThrow().getStock()).isEqualTo(1000 - STOCK);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items WHERE product_id IN (?, ?)",
+                Integer.class, product.getId(), accessory.getId())).isEqualTo(2 * STOCK);
+        // Losing buyers keep their carts, winners' carts are emptied by the bulk delete
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items WHERE product_id = ?",
+                Integer.class, product.getId())).isEqualTo(BUYERS - STOCK);
+    }
+
+    @Test
+    void checkout_shouldGiveUpWhenProductRowStaysLocked() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> holder = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            productRepository.lockStockForUpdate(List.of(product.getId()), 5000);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        double timeoutsBefore = lockWaitCount("timeout");
+        try {
+            // H2 reports the lock timeout as an SQLTimeoutException, which makes Hikari discard the
+            // connection so the rollback error can mask the lock failure; the metric shows what happened
+            assertThatThrownBy(() -> orderService.createOrder(buyers.get(0)))
+                .isInstanceOf(RuntimeException.class);
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+
+        assertThat(lockWaitCount("timeout")).isEqualTo(timeoutsBefore + 1);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(STOCK);
+    }
+
+    private double lockWaitCount(String outcome) {
+        Timer timer = meterRegistry.find("shop.checkout.lock.wait").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
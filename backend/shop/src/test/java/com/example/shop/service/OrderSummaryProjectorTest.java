@@ -0,0 +1,81 @@
+package com.example.shop.service;
+
+import com.example.shop.model.Order;
+import com.example.shop.model.User;
+import com.example.shop.repository.OrderRepository;
+import com.example.shop.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class OrderSummaryProjectorTest {
+
+    @Autowired
+    private OrderSummaryProjector orderSummaryProjector;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("projector_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+
+        // Saved through the repository, so the order has no summary row yet
+        Order order = new Order();
+        order.setUser(user);
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setTotalPrice(new BigDecimal("7.00"));
+        orderId = orderRepository.saveAndFlush(order).getId();
+    }
+
+    @Test
+    void startup_shouldSkipBackfillOnceMarkedComplete() {
+        assertThat(migrationMarkers()).isEqualTo(1);
+
+        orderSummaryProjector.backfillOnStartup();
+
+        assertThat(summaryRows()).isZero();
+    }
+
+    @Test
+    void startup_shouldBackfillAndMarkCompleteWhenMarkerIsMissing() {
+        jdbcTemplate.update("DELETE FROM data_migrations WHERE name = ?", OrderSummaryProjector.BACKFILL_MIGRATION);
+
+        orderSummaryProjector.backfillOnStartup();
+
+        assertThat(summaryRows()).isEqualTo(1);
+        assertThat(migrationMarkers()).isEqualTo(1);
+    }
+
+    private int summaryRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_summaries WHERE order_id = ?",
+                Integer.class, orderId);
+    }
+
+    private int migrationMarkers() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migrations WHERE name = ?",
+                Integer.class, OrderSummaryProjector.BACKFILL_MIGRATION);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.shop.service;
+
+import com.example.shop.model.Cart;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.CartItemRepository;
+import com.example.shop.repository.CartRepository;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "shop.orders.expiry.timeout-minutes=30",
+        "shop.orders.expiry.batch-size=2"
+})
+class PendingOrderExpiryServiceTest {
+
+    @Autowired
+    private PendingOrderExpiryService expiryService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Unpaid Product");
+        product.setDescription("Reserved by unpaid orders");
+        product.setPrice(new BigDecimal("5.00"));
+        product.setStock(20);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestData.deleteUsersCascade(jdbcTemplate, users);
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void staleOrders_shouldBeCancelledInChunksAndRestock() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> stale = List.of(placeOrder(1), placeOrder(2), placeOrder(3));
+        stale.forEach(order -> age(order, now.minusHours(2)));
+        Order paid = placeOrder(4);
+        age(paid, now.minusHours(2));
+        orderService.updateOrderStatus(paid.getId(), Order.OrderStatus.PAID);
+        Order fresh = placeOrder(5);
+        assertThat(stock()).isEqualTo(20 - 15);
+
+        int cancelled = expiryService.expire(now);
+
+        assertThat(cancelled).isEqualTo(3);
+        stale.forEach(order -> assertThat(status(order)).isEqualTo("CANCELLED"));
+        assertThat(status(paid)).isEqualTo("PAID");
+        assertThat(status(fresh)).isEqualTo("PENDING");
+        assertThat(stock()).isEqualTo(20 - 4 - 5);
+        assertThat(expiryService.expire(now)).isZero();
+    }
+
+    private Order placeOrder(int quantity) {
+        User user = new User();
+        user.setUsername("expiry_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+        users.add(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        cartItemRepository.save(item);
+        return orderService.createOrder(user);
+    }
+
+    private void age(Order order, LocalDateTime createdAt) {
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), order.getId());
+    }
+
+    private String status(Order order) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, order.getId());
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
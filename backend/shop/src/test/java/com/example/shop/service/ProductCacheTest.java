@@ -0,0 +1,109 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.ProductDetailDto;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+    private User buyer;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setName("Cached Product");
+        product.setDescription("Cache me");
+        product.setPrice(new BigDecimal("12.50"));
+        product.setStock(7);
+        productId = productService.addProduct(product).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (buyer != null) {
+            TestData.deleteUsersCascade(jdbcTemplate, List.of(buyer));
+        }
+        productService.deleteProduct(productId);
+    }
+
+    @Test
+    void getProductDetail_shouldServeRepeatedReadsFromCache() {
+        double hitsBefore = cacheGets("hit");
+
+        ProductDetailDto first = productService.getProductDetail(productId);
+        ProductDetailDto second = productService.getProductDetail(productId);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cacheGets("hit")).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    void updateProduct_shouldInvalidateCachedEntry() {
+        productService.getProductDetail(productId);
+
+        Product patch = new Product();
+        patch.setPrice(new BigDecimal("15.00"));
+        patch.setStock(null);
+        productService.updateProduct(productId, patch);
+
+        assertThat(productService.getProductDetail(productId).getPrice()).isEqualByComparingTo("15.00");
+    }
+
+    @Test
+    void addCartItem_shouldReadProductFromCache() {
+        buyer = new User();
+        buyer.setUsername("cache_buyer_" + System.nanoTime());
+        buyer.setEmail(buyer.getUsername() + "@example.com");
+        buyer.setPassword("not-used");
+        buyer.setRole("USER");
+        buyer = userRepository.save(buyer);
+        productService.getProductDetail(productId);
+        double hitsBefore = cacheGets("hit");
+
+        CartItem item = cartService.addCartItem(buyer, productId, 2);
+
+        assertThat(cacheGets("hit")).isEqualTo(hitsBefore + 1);
+        assertThat(item.getProduct().getName()).isEqualTo("Cached Product");
+        assertThat(cartService.addCartItem(buyer, productId, 1).getQuantity()).isEqualTo(3);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "products")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+}
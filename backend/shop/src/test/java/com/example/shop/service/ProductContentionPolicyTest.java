@@ -0,0 +1,134 @@
+package com.example.shop.service;
+
+import com.example.shop.exception.ConflictException;
+import com.example.shop.exception.ProductContentionException;
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "shop.products.contention.max-attempts=3",
+        "shop.products.contention.backoff-ms=1"
+})
+class ProductContentionPolicyTest {
+
+    @Autowired
+    private ProductContentionPolicy contentionPolicy;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Contended Product");
+        product.setDescription("Edited while selling");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStock(10);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void staleVersion_shouldBeRejectedAndCounted() {
+        double conflictsBefore = count("shop.products.contention.conflicts", "admin-update");
+        // A checkout-style stock update outside JPA still bumps the version
+        jdbcTemplate.update("UPDATE products SET stock = stock - 1, version = version + 1 WHERE id = ?", product.getId());
+
+        Product edit = new Product();
+        edit.setPrice(new BigDecimal("12.00"));
+        edit.setVersion(product.getVersion());
+
+        assertThatThrownBy(() -> productService.updateProduct(product.getId(), edit))
+            .isInstanceOf(ConflictException.class);
+        assertThat(count("shop.products.contention.conflicts", "admin-update") - conflictsBefore).isEqualTo(1);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getPrice()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void currentVersion_shouldUpdateAndBumpVersion() {
+        Product edit = new Product();
+        edit.setPrice(new BigDecimal("12.00"));
+        edit.setVersion(product.getVersion());
+
+        Product updated = productService.updateProduct(product.getId(), edit);
+
+        assertThat(updated.getPrice()).isEqualByComparingTo("12.00");
+        assertThat(updated.getVersion()).isEqualTo(product.getVersion() + 1);
+    }
+
+    @Test
+    void transientConflict_shouldBeRetried() {
+        double retriesBefore = count("shop.products.contention.retries", "checkout");
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = contentionPolicy.execute(ProductContentionPolicy.CHECKOUT, List.of(), () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ProductContentionException(List.of(product.getId()), null);
+            }
+            return "placed";
+        });
+
+        assertThat(result).isEqualTo("placed");
+        assertThat(attempts).hasValue(2);
+        assertThat(count("shop.products.contention.retries", "checkout") - retriesBefore).isEqualTo(1);
+    }
+
+    @Test
+    void persistentConflict_shouldGiveUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> contentionPolicy.execute(ProductContentionPolicy.ADMIN_UPDATE, List.of(product.getId()), () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void conflictMetrics_shouldNotBeTaggedPerProduct() {
+        contentionPolicy.recordConflict(ProductContentionPolicy.ADMIN_UPDATE, List.of(product.getId()));
+        contentionPolicy.recordConflict(ProductContentionPolicy.ADMIN_UPDATE, List.of(product.getId() + 1));
+
+        assertThat(meterRegistry.find("shop.products.contention.conflicts")
+                .tag("operation", ProductContentionPolicy.ADMIN_UPDATE)
+                .counters()).hasSize(1);
+        assertThat(meterRegistry.find("shop.products.contention.conflicts").tagKeys("product").counters()).isEmpty();
+    }
+
+    private double count(String name, String operation) {
+        var counter = meterRegistry.find(name)
+                .tag("operation", operation)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shop.service;
+
+import com.example.shop.dto.ProductSearchHitDto;
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.model.Product;
+import com.example.shop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = Mockito.mock(ProductRepository.class);
+        index = new ProductSearchIndex(productRepository);
+        index.index(product(1L, "Wireless Mouse", "A smooth wireless mouse.", "Bluetooth and 2.4G dual mode."));
+        index.index(product(2L, "Mechanical Keyboard", "Keyboard with backlight.", "Hot-swappable switches."));
+        index.index(product(3L, "USB-C Hub", "Compact hub.", "Works with any wireless keyboard or mouse."));
+    }
+
+    @Test
+    void search_shouldRankNameMatchesAboveDetailMatches() {
+        List<ProductSearchHitDto> hits = index.search("wireless mouse", 10);
+
+        assertThat(hits).extracting(ProductSearchHitDto::getId).containsExactly(1L, 3L);
+        assertThat(hits.get(0).getScore()).isGreaterThan(hits.get(1).getScore());
+    }
+
+    @Test
+    void search_shouldPrefixMatchLastTerm() {
+        assertThat(index.search("keyb", 10))
+                .extracting(ProductSearchHitDto::getId)
+                .containsExactly(2L, 3L);
+        assertThat(index.search("", 10)).isEmpty();
+    }
+
+    @Test
+    void search_shouldReflectUpdatesAndDeletes() {
+        index.index(product(2L, "Gaming Keypad", "Compact keypad.", null));
+        index.onProductChanged(ProductChangedEvent.of(ProductChangedEvent.Type.DELETED, 1L));
+
+        assertThat(index.search("mechanical", 10)).isEmpty();
+        assertThat(index.search("keypad", 10)).extracting(ProductSearchHitDto::getId).containsExactly(2L);
+        assertThat(index.search("mouse", 10)).extracting(ProductSearchHitDto::getId).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void bulkImport_shouldIndexTheImportedIdRange() {
+        // A product created during the import already has a higher id than the imported rows
+        index.index(product(20L, "Desk Lamp", "Warm light.", null));
+        Mockito.when(productRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                Mockito.eq(9L), Mockito.eq(11L), Mockito.any()))
+            .thenReturn(List.of(product(10L, "Imported Lamp", "Bulk row.", null),
+                product(11L, "Imported Cable", "Bulk row.", null)));
+
+        index.onProductChanged(ProductChangedEvent.bulkImported(10L, 11L));
+
+        assertThat(index.search("imported", 10)).extracting(ProductSearchHitDto::getId).containsExactlyInAnyOrder(10L, 11L);
+        assertThat(index.size()).isEqualTo(6);
+    }
+
+    private Product product(Long id, String name, String description, String details) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setDetails(details);
+        product.setPrice(new BigDecimal("9.99"));
+        return product;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.shop.service;
+
+import com.example.shop.event.ProductChangedEvent;
+import com.example.shop.model.CartItem;
+import com.example.shop.model.Order;
+import com.example.shop.model.Product;
+import com.example.shop.model.User;
+import com.example.shop.repository.ProductRepository;
+import com.example.shop.repository.UserRepository;
+import com.example.shop.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "shop.stock.holds.enabled=true",
+        "shop.stock.holds.ttl-seconds=60",
+        "shop.stock.holds.tick-ms=3600000",
+        "shop.stock.hot-skus.enabled=true",
+        "shop.stock.hot-skus.flush-interval-ms=3600000"
+})
+class StockHoldServiceTest {
+
+    private static final long AFTER_TTL_MILLIS = 60_000 + 3_600_000;
+
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private HotSkuReservationEngine hotSkuEngine;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setName("Held Product");
+        product.setDescription("Reserved in carts");
+        product.setPrice(new BigDecimal("30.00"));
+        product.setStock(5);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotSkuEngine.flush();
+        TestData.deleteUsersCascade(jdbcTemplate, users);
+        productRepository.deleteById(product.getId());
+        hotSkuEngine.onProductChanged(ProductChangedEvent.of(ProductChangedEvent.Type.DELETED, product.getId()));
+    }
+
+    @Test
+    void addToCart_shouldHoldStockUntilTheHoldExpires() {
+        User first = newUser();
+        User second = newUser();
+        CartItem held = cartService.addCartItem(first, product.getId(), 2);
+        cartService.addCartItem(first, product.getId(), 1);
+
+        assertThat(stock()).isEqualTo(2);
+        assertThat(heldQuantity(held.getId())).isEqualTo(3);
+        assertThatThrownBy(() -> cartService.addCartItem(second, product.getId(), 3))
+            .hasMessageContaining("Insufficient stock");
+
+        assertThat(stockHoldService.expire(System.currentTimeMillis() + AFTER_TTL_MILLIS)).isEqualTo(3);
+
+        assertThat(stock()).isEqualTo(5);
+        assertThat(heldQuantity(held.getId())).isZero();
+        cartService.addCartItem(second, product.getId(), 3);
+        assertThat(stock()).isEqualTo(2);
+    }
+
+    @Test
+    void checkout_shouldConsumeTheHold() {
+        User buyer = newUser();
+        cartService.addCartItem(buyer, product.getId(), 4);
+        assertThat(stock()).isEqualTo(1);
+
+        Order order = orderService.createOrder(buyer);
+
+        assertThat(order.getTotalPrice()).isEqualByComparingTo("120.00");
+        assertThat(stock()).isEqualTo(1);
+        // The stale timer entry finds no cart line and returns nothing
+        assertThat(stockHoldService.expire(System.currentTimeMillis() + AFTER_TTL_MILLIS)).isZero();
+        assertThat(stock()).isEqualTo(1);
+    }
+
+    @Test
+    void checkoutAfterExpiry_shouldTakeStockAgain() {
+        User buyer = newUser();
+        cartService.addCartItem(buyer, product.getId(), 2);
+        stockHoldService.expire(System.currentTimeMillis() + AFTER_TTL_MILLIS);
+        assertThat(stock()).isEqualTo(5);
+
+        orderService.createOrder(buyer);
+
+        assertThat(stock()).isEqualTo(3);
+    }
+
+    @Test
+    void removingLines_shouldReturnHeldStock() {
+        User buyer = newUser();
+        CartItem item = cartService.addCartItem(buyer, product.getId(), 2);
+        cartService.updateCartItemQuantity(buyer, item.getId(), 4);
+        assertThat(stock()).isEqualTo(1);
+
+        cartService.updateCartItemQuantity(buyer, item.getId(), 1);
+        assertThat(stock()).isEqualTo(4);
+
+        cartService.deleteCartItem(buyer, item.getId());
+        assertThat(stock()).isEqualTo(5);
+
+        cartService.addCartItem(buyer, product.getId(), 5);
+        cartService.clearCart(buyer);
+        assertThat(stock()).isEqualTo(5);
+    }
+
+    @Test
+    void checkoutOfAProductThatTurnedHot_shouldReturnTheHold() {
+        User buyer = newUser();
+        cartService.addCartItem(buyer, product.getId(), 2);
+        assertThat(stock()).isEqualTo(3);
+        hotSkuEngine.track(product.getId());
+
+        orderService.createOrder(buyer);
+
+        // The hot SKU engine takes the 2 units; the 2 held units go back, so 3 remain sellable
+        assertThat(hotSkuEngine.available(product.getId())).isEqualTo(3);
+        hotSkuEngine.flush();
+        assertThat(stock()).isEqualTo(3);
+    }
+
+    @Test
+    void startup_shouldReturnHoldsOnHotProducts() {
+        User buyer = newUser();
+        CartItem held = cartService.addCartItem(buyer, product.getId(), 2);
+        hotSkuEngine.track(product.getId());
+
+        stockHoldService.start();
+
+        assertThat(heldQuantity(held.getId())).isZero();
+        assertThat(stock()).isEqualTo(5);
+        assertThat(hotSkuEngine.available(product.getId())).isEqualTo(5);
+    }
+
+    private User newUser() {
+        User user = new User();
+        user.setUsername("hold_user_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("not-used");
+        user.setRole("USER");
+        user = userRepository.save(user);
+        users.add(user);
+        return user;
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+
+    private int heldQuantity(Long cartItemId) {
+        return jdbcTemplate.queryForObject("SELECT held_quantity FROM cart_items WHERE id = ?", Integer.class, cartItemId);
+    }
+}
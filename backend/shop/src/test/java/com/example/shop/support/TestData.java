@@ -0,0 +1,27 @@
+package com.example.shop.support;
+
+import com.example.shop.model.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+
+/**
+ * Cleanup shared by tests that commit real data (non-transactional tests).
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    // 删除用户及其订单（含订单摘要）、购物车，按外键依赖顺序
+    public static void deleteUsersCascade(JdbcTemplate jdbcTemplate, Collection<User> users) {
+        for (User user : users) {
+            jdbcTemplate.update("DELETE FROM order_summaries WHERE user_id = ?", user.getId());
+            jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE user_id = ?)", user.getId());
+            jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+            jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (SELECT id FROM carts WHERE user_id = ?)", user.getId());
+            jdbcTemplate.update("DELETE FROM carts WHERE user_id = ?", user.getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.shop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void entries_shouldFireWithinOneTickAfterTheirDeadline() {
+        // 10 ms ticks, 8 slots: deadlines past 80 ms go through two overflow wheels
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+        List<Long> deadlines = List.of(5L, 10L, 79L, 81L, 640L, 641L, 5_000L, 12_345L);
+        deadlines.forEach(deadline -> wheel.schedule(deadline, deadline));
+        assertThat(wheel.size()).isEqualTo(deadlines.size());
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 13_000; now++) {
+            for (Long deadline : wheel.advance(now)) {
+                assertThat(now).isGreaterThanOrEqualTo(deadline).isLessThan(deadline + 10);
+                fired.add(deadline);
+            }
+        }
+
+        assertThat(fired).containsExactlyElementsOf(deadlines);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void overdueEntries_shouldBeReturnedOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(100, 16, 1_000);
+        wheel.advance(5_000);
+
+        wheel.schedule("late", 4_000);
+
+        assertThat(wheel.advance(5_000)).containsExactly("late");
+        assertThat(wheel.advance(10_000)).isEmpty();
+    }
+}
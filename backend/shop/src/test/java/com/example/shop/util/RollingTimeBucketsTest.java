@@ -0,0 +1,56 @@
+package com.example.shop.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RollingTimeBucketsTest {
+
+    @Test
+    void snapshot_shouldReturnTheLatestBucketsOldestFirst() {
+        // 10 ms buckets, 4 of them: at t=45 the window is [10, 50)
+        RollingTimeBuckets buckets = new RollingTimeBuckets(10, 4);
+        buckets.add(12, 1, 500, 2);
+        buckets.add(19, 1, 250, 1);
+        buckets.add(41, 1, 100, 3);
+
+        assertThat(buckets.snapshot(45)).containsExactly(
+            new RollingTimeBuckets.Bucket(10, 2, 750, 3),
+            new RollingTimeBuckets.Bucket(20, 0, 0, 0),
+            new RollingTimeBuckets.Bucket(30, 0, 0, 0),
+            new RollingTimeBuckets.Bucket(40, 1, 100, 3));
+    }
+
+    @Test
+    void newerBuckets_shouldReuseSlotsAndDropOlderValues() {
+        RollingTimeBuckets buckets = new RollingTimeBuckets(10, 4);
+        buckets.add(5, 1, 100, 1);
+        // Bucket 4 takes over slot 0
+        buckets.add(45, 1, 300, 1);
+        // Too old for slot 0 now, dropped
+        buckets.add(7, 1, 100, 1);
+
+        assertThat(buckets.snapshot(45)).extracting(RollingTimeBuckets.Bucket::amount).containsExactly(0L, 0L, 0L, 300L);
+        assertThat(buckets.snapshot(200)).extracting(RollingTimeBuckets.Bucket::count).containsOnly(0L);
+    }
+
+    @Test
+    void negativeAmounts_shouldTakeBackEarlierAdditions() {
+        RollingTimeBuckets buckets = new RollingTimeBuckets(10, 4);
+        buckets.add(31, 1, 999, 2);
+        buckets.add(32, 1, 400, 1);
+
+        buckets.add(31, -1, -999, -2);
+
+        assertThat(buckets.snapshot(39).get(3)).isEqualTo(new RollingTimeBuckets.Bucket(30, 1, 400, 1));
+        buckets.clear();
+        assertThat(buckets.snapshot(39).get(3).count()).isZero();
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> new RollingTimeBuckets(0, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RollingTimeBuckets(10, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,5 +1,5 @@
 import { useEffect, useState } from 'react'
-import { getAllOrdersForAdmin, updateOrderStatus } from '../../../services/order'
+import { getAdminOrderPage, updateOrderStatus } from '../../../services/order'
 import LoadingSpinner from '../../../components/common/LoadingSpinner'
 import ErrorMessage from '../../../components/common/ErrorMessage'
 import { formatUSD } from '../../../utils/currency'
@@ -8,27 +8,49 @@ const STATUS_OPTIONS = ['PENDING', 'PAID', 'SHIPPED', 'COMPLETED', 'CANCELLED']
 
 export default function AdminOrders() {
   const [orders, setOrders] = useState([])
+  const [page, setPage] = useState({ nextCursor: null, hasMore: false, totalCount: 0, totalCountCapped: false })
+  const [statusFilter, setStatusFilter] = useState('')
   const [statusDrafts, setStatusDrafts] = useState({})
   const [loading, setLoading] = useState(true)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [submittingId, setSubmittingId] = useState(null)
   const [error, setError] = useState(null)
 
-  const loadOrders = async () => {
-    setError(null)
-    const data = await getAllOrdersForAdmin()
-    setOrders(data)
-    setStatusDrafts(
-      data.reduce((acc, order) => {
-        acc[order.id] = order.status
-        return acc
-      }, {})
+  const applyPage = (data, append) => {
+    setOrders((prev) => (append ? [...prev, ...data.items] : data.items))
+    setPage(data)
+    setStatusDrafts((prev) =>
+      data.items.reduce(
+        (acc, order) => {
+          acc[order.id] = order.status
+          return acc
+        },
+        append ? { ...prev } : {}
+      )
     )
   }
 
+  // Reloads from the first page; the list is keyset-paginated on the server
+  const loadOrders = async (status = statusFilter) => {
+    setError(null)
+    applyPage(await getAdminOrderPage({ status }), false)
+  }
+
+  const loadMore = async () => {
+    setLoadingMore(true)
+    try {
+      applyPage(await getAdminOrderPage({ status: statusFilter, cursor: page.nextCursor }), true)
+    } catch (err) {
+      setError(err.message)
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   useEffect(() => {
     const fetchOrders = async () => {
       try {
-        await loadOrders()
+        await loadOrders(statusFilter)
       } catch (err) {
         setError(err.message)
       } finally {
@@ -37,7 +59,7 @@ export default function AdminOrders() {
     }
 
     fetchOrders()
-  }, [])
+  }, [statusFilter])
 
   const handleStatusUpdate = async (orderId) => {
     setSubmittingId(orderId)
@@ -65,7 +87,29 @@ export default function AdminOrders() {
             Update fulfillment status and monitor all customer orders.
           </p>
         </div>
-        <span className="chip">{orders.length} orders</span>
+        <div className="flex items-center gap-2">
+          <label htmlFor="status-filter" className="sr-only">
+            Filter by status
+          </label>
+          <select
+            id="status-filter"
+            aria-label="Filter by status"
+            value={statusFilter}
+            onChange={(e) => setStatusFilter(e.target.value)}
+            className="input-shell py-2"
+          >
+            <option value="">All statuses</option>
+            {STATUS_OPTIONS.map((status) => (
+              <option key={status} value={status}>
+                {status}
+              </option>
+            ))}
+          </select>
+          <span className="chip">
+            {page.totalCount ?? orders.length}
+            {page.totalCountCapped ? '+' : ''} orders
+          </span>
+        </div>
       </div>
 
       {orders.length === 0 ? (
@@ -115,6 +159,11 @@ export default function AdminOrders() {
               </div>
             </article>
           ))}
+          {page.hasMore && (
+            <button type="button" onClick={loadMore} disabled={loadingMore} className="button-primary py-2">
+              {loadingMore ? 'Loading...' : 'Load more'}
+            </button>
+          )}
         </div>
       )}
     </section>
@@ -22,13 +22,14 @@ export default function ProductForm({ product, onClose, onSuccess }) {
 
     try {
       if (product) {
-        await updateProduct(product.id, formData)
+        // 带上读取时的版本号，期间被改动过（包括下单扣库存）会返回 409
+        await updateProduct(product.id, { ...formData, version: product.version })
       } else {
         await addProduct(formData)
       }
       onSuccess()
     } catch (err) {
-      setError(err.message)
+      setError(typeof err === 'string' ? err : err.message)
     } finally {
       setSubmitting(false)
     }
@@ -1,5 +1,5 @@
 import { useEffect, useState } from 'react'
-import { getAllProducts, deleteProduct } from '../../../services/product'
+import { getAllProducts, getProductById, deleteProduct } from '../../../services/product'
 import { useToast } from '../../../components/common/Toast'
 import { useConfirm } from '../../../components/common/ConfirmDialog'
 import LoadingSpinner from '../../../components/common/LoadingSpinner'
@@ -32,9 +32,14 @@ export default function AdminProducts() {
     fetchProducts()
   }, [])
 
-  const handleEdit = (product) => {
-    setEditingProduct(product)
-    setIsFormOpen(true)
+  const handleEdit = async (product) => {
+    try {
+      const detail = await getProductById(product.id)
+      setEditingProduct(detail)
+      setIsFormOpen(true)
+    } catch (err) {
+      showToast(err.message, 'error')
+    }
   }
 
   const handleDelete = async (productId) => {
@@ -107,7 +112,7 @@ export default function AdminProducts() {
                     />
                     <div>
                       <p className="font-semibold text-[color:var(--brand-ink)]">{product.name}</p>
-                      <p className="mt-1 max-w-md text-sm text-[color:var(--brand-muted)]">{product.description}</p>
+                      <p className="mt-1 max-w-md text-sm text-[color:var(--brand-muted)]">{product.shortDescription}</p>
                     </div>
                   </div>
                 </td>
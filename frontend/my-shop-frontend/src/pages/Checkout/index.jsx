@@ -14,6 +14,8 @@ export default function Checkout() {
   const { cartItems, totalPrice, loading, error, refreshCart } = useCart()
   const [submitting, setSubmitting] = useState(false)
   const [submitError, setSubmitError] = useState('')
+  // One key per checkout visit, so a resubmitted payment never places a second order
+  const [idempotencyKey] = useState(() => crypto.randomUUID())
 
   const totalItems = useMemo(
     () => cartItems.reduce((sum, item) => sum + Number(item?.quantity ?? 0), 0),
@@ -24,7 +26,7 @@ export default function Checkout() {
     try {
       setSubmitError('')
       setSubmitting(true)
-      const order = await createOrder()
+      const order = await createOrder(idempotencyKey)
       await refreshCart()
       showToast('Payment successful. Order placed.', 'success')
       navigate(`/orders/${order.id}`)
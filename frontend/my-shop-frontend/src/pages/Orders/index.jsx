@@ -22,14 +22,32 @@ const getStatusClass = (status) => {
 
 export default function Orders() {
   const [orders, setOrders] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
   const [loading, setLoading] = useState(true)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [error, setError] = useState(null)
 
+  const applyPage = (data, append) => {
+    const items = Array.isArray(data?.items) ? data.items.map(normalizeOrder) : []
+    setOrders((prev) => (append ? [...prev, ...items] : items))
+    setNextCursor(data?.nextCursor ?? null)
+  }
+
+  const loadMore = async () => {
+    setLoadingMore(true)
+    try {
+      applyPage(await getOrders({ cursor: nextCursor }), true)
+    } catch (err) {
+      setError(err.message)
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   useEffect(() => {
     const fetchOrders = async () => {
       try {
-        const data = await getOrders()
-        setOrders(Array.isArray(data) ? data.map(normalizeOrder) : [])
+        applyPage(await getOrders(), false)
       } catch (err) {
         setError(err.message)
       } finally {
@@ -79,24 +97,19 @@ export default function Orders() {
               </div>
             </div>
 
-            <div className="mt-4 space-y-3 border-t border-[color:var(--brand-line)] pt-4">
-              {order.items.slice(0, 3).map((item) => (
-                <div key={item.id} className="flex items-center justify-between gap-3">
-                  <div className="flex items-center gap-3">
-                    <img
-                      src={getProductImage(item.product?.imageUrl)}
-                      alt={item.product.name}
-                      className="h-12 w-12 rounded-xl object-cover"
-                      onError={handleImageError}
-                    />
-                    <div>
-                      <p className="text-sm font-semibold">{item.product.name}</p>
-                      <p className="text-xs text-[color:var(--brand-muted)]">Qty {item.quantity}</p>
-                    </div>
-                  </div>
-                  <p className="text-sm font-semibold">{formatUSD(item.price * item.quantity)}</p>
-                </div>
-              ))}
+            <div className="mt-4 flex items-center gap-3 border-t border-[color:var(--brand-line)] pt-4">
+              <img
+                src={getProductImage(order.thumbnailUrl)}
+                alt={order.productNames || order.orderNumber}
+                className="h-12 w-12 rounded-xl object-cover"
+                onError={handleImageError}
+              />
+              <div>
+                <p className="text-sm font-semibold">{order.productNames || 'Order items'}</p>
+                <p className="text-xs text-[color:var(--brand-muted)]">
+                  {order.itemCount ?? 0} {order.itemCount === 1 ? 'item' : 'items'}
+                </p>
+              </div>
             </div>
 
             <div className="mt-4 flex flex-wrap items-center justify-between gap-3 border-t border-[color:var(--brand-line)] pt-4">
@@ -110,6 +123,11 @@ export default function Orders() {
             </div>
           </article>
         ))}
+        {nextCursor && (
+          <button type="button" onClick={loadMore} disabled={loadingMore} className="button-primary py-2">
+            {loadingMore ? 'Loading...' : 'Load more'}
+          </button>
+        )}
       </div>
     </section>
   )
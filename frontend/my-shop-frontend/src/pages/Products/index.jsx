@@ -47,7 +47,7 @@ export default function Products() {
       if (!normalized) return true
       return (
         product.name?.toLowerCase().includes(normalized) ||
-        product.description?.toLowerCase().includes(normalized)
+        product.shortDescription?.toLowerCase().includes(normalized)
       )
     })
 
@@ -186,7 +186,7 @@ export default function Products() {
                 </p>
               </div>
               <p className="mt-2 line-clamp-2 text-sm leading-relaxed text-[color:var(--brand-muted)]">
-                {product.description}
+                {product.shortDescription}
               </p>
               <div className="mt-4 grid grid-cols-2 gap-2">
                 <button
@@ -1,14 +1,41 @@
 import api from './api'
 import { normalizeOrder } from '../utils/order'
 
-export const createOrder = async () => {
-  const response = await api.post('/orders')
+const PLACEMENT_POLL_MS = 500
+const PLACEMENT_POLL_ATTEMPTS = 120
+
+// Retries with the same idempotencyKey return the original order instead of checking out again.
+// A slow checkout answers 202 with a placement handle; poll it rather than retrying the checkout
+export const createOrder = async (idempotencyKey) => {
+  const config = idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined
+  const response = await api.post('/orders', null, config)
+  if (response.status === 202) {
+    return waitForPlacement(response.data.handle)
+  }
   return normalizeOrder(response.data)
 }
 
-export const getOrders = async () => {
-  const response = await api.get('/orders')
-  return Array.isArray(response.data) ? response.data.map(normalizeOrder) : []
+const waitForPlacement = async (handle) => {
+  for (let attempt = 0; attempt < PLACEMENT_POLL_ATTEMPTS; attempt++) {
+    const { data } = await api.get(`/orders/placements/${handle}`)
+    if (data.status === 'PENDING') {
+      return getOrderById(data.orderId)
+    }
+    if (data.status === 'FAILED') {
+      throw new Error(data.message || 'Checkout failed')
+    }
+    await new Promise((resolve) => setTimeout(resolve, PLACEMENT_POLL_MS))
+  }
+  throw new Error('Checkout is still in progress, check your orders later')
+}
+
+// One page of the user's orders, newest first; the server returns the next page's cursor in Next-Cursor
+export const getOrders = async ({ cursor, limit } = {}) => {
+  const response = await api.get('/orders', { params: { cursor, limit } })
+  return {
+    items: Array.isArray(response.data) ? response.data.map(normalizeOrder) : [],
+    nextCursor: response.headers?.['next-cursor'] ?? null,
+  }
 }
 
 export const getOrderById = async (orderId) => {
@@ -16,9 +43,19 @@ export const getOrderById = async (orderId) => {
   return normalizeOrder(response.data)
 }
 
-export const getAllOrdersForAdmin = async () => {
-  const response = await api.get('/orders/admin')
-  return Array.isArray(response.data) ? response.data.map(normalizeOrder) : []
+// One page of the admin order list, newest first; pass the previous page's nextCursor to continue
+export const getAdminOrderPage = async ({ cursor, limit = 50, status } = {}) => {
+  const response = await api.get('/orders/admin', {
+    params: { cursor, limit, status: status || undefined, count: true },
+  })
+  const page = response.data || {}
+  return {
+    items: Array.isArray(page.items) ? page.items.map(normalizeOrder) : [],
+    nextCursor: page.nextCursor ?? null,
+    hasMore: Boolean(page.hasMore),
+    totalCount: page.totalCount,
+    totalCountCapped: Boolean(page.totalCountCapped),
+  }
 }
 
 export const updateOrderStatus = async (orderId, status) => {
@@ -10,6 +10,11 @@ export const getProductById = async (id) => {
   return response.data
 }
 
+export const getProductsByIds = async (ids) => {
+  const response = await api.post('/products/batch', ids)
+  return response.data
+}
+
 // Admin endpoints
 export const addProduct = async (productData) => {
   const response = await api.post('/products/add', productData)
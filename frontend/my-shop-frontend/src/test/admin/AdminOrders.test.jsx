@@ -4,21 +4,27 @@ import { vi } from 'vitest'
 import AdminOrders from '../../pages/Admin/Orders'
 
 vi.mock('../../services/order', () => ({
-  getAllOrdersForAdmin: vi.fn(),
+  getAdminOrderPage: vi.fn(),
   updateOrderStatus: vi.fn(),
 }))
 
-import { getAllOrdersForAdmin, updateOrderStatus } from '../../services/order'
+import { getAdminOrderPage, updateOrderStatus } from '../../services/order'
 
 test('admin can update order status from list', async () => {
-  getAllOrdersForAdmin.mockResolvedValue([
-    {
-      id: 201,
-      status: 'PAID',
-      totalPrice: 88.88,
-      orderItems: [{ id: 1, productName: 'Keyboard', quantity: 1, unitPrice: 88.88 }],
-    },
-  ])
+  getAdminOrderPage.mockResolvedValue({
+    items: [
+      {
+        id: 201,
+        status: 'PAID',
+        totalPrice: 88.88,
+        orderItems: [{ id: 1, productName: 'Keyboard', quantity: 1, unitPrice: 88.88 }],
+      },
+    ],
+    nextCursor: null,
+    hasMore: false,
+    totalCount: 1,
+    totalCountCapped: false,
+  })
   updateOrderStatus.mockResolvedValue({
     id: 201,
     status: 'SHIPPED',
@@ -43,6 +49,6 @@ test('admin can update order status from list', async () => {
     expect(updateOrderStatus).toHaveBeenCalledWith(201, 'SHIPPED')
   })
   await waitFor(() => {
-    expect(getAllOrdersForAdmin).toHaveBeenCalledTimes(2)
+    expect(getAdminOrderPage).toHaveBeenCalledTimes(2)
   })
 })
@@ -28,8 +28,18 @@ const mockOrder = {
   ],
 }
 
-test('renders order list using orderItems fields', async () => {
-  getOrders.mockResolvedValue([mockOrder])
+const mockOrderSummary = {
+  id: 101,
+  createdAt: '2026-02-22T00:00:00',
+  status: 'PAID',
+  totalPrice: 49.98,
+  itemCount: 2,
+  productNames: 'Mouse',
+  thumbnailUrl: 'https://img/mouse',
+}
+
+test('renders order list using order summary fields', async () => {
+  getOrders.mockResolvedValue({ items: [mockOrderSummary], nextCursor: null })
 
   render(
     <MemoryRouter>
@@ -38,7 +48,7 @@ test('renders order list using orderItems fields', async () => {
   )
 
   expect(await screen.findByText('Mouse')).toBeInTheDocument()
-  expect(screen.getByText('Qty 2')).toBeInTheDocument()
+  expect(screen.getByText('2 items')).toBeInTheDocument()
   expect(screen.getAllByText('$49.98').length).toBeGreaterThan(0)
 })
 
@@ -28,7 +28,7 @@ import { getAllProducts } from '../../services/product'
 const productFixture = {
   id: 1,
   name: 'Wireless Mouse',
-  description: 'Smooth and responsive',
+  shortDescription: 'Smooth and responsive',
   price: 19.99,
   imageUrl: '/demo-products/wireless-mouse.jpg',
 }